@@ -0,0 +1,515 @@
+package com.syntazo.coffeegrains.benchmarks;
+
+import static com.syntazo.coffeegrains.Iteration.chain;
+import static com.syntazo.coffeegrains.Iteration.cycle;
+import static com.syntazo.coffeegrains.Iteration.dot;
+import static com.syntazo.coffeegrains.Iteration.doubles;
+import static com.syntazo.coffeegrains.Iteration.dropwhile;
+import static com.syntazo.coffeegrains.Iteration.enumerate;
+import static com.syntazo.coffeegrains.Iteration.filter;
+import static com.syntazo.coffeegrains.Iteration.ints;
+import static com.syntazo.coffeegrains.Iteration.iterable;
+import static com.syntazo.coffeegrains.Iteration.iterate;
+import static com.syntazo.coffeegrains.Iteration.join;
+import static com.syntazo.coffeegrains.Iteration.map;
+import static com.syntazo.coffeegrains.Iteration.merge;
+import static com.syntazo.coffeegrains.Iteration.range;
+import static com.syntazo.coffeegrains.Iteration.reduce;
+import static com.syntazo.coffeegrains.Iteration.repeat;
+import static com.syntazo.coffeegrains.Iteration.slice;
+import static com.syntazo.coffeegrains.Iteration.sum;
+import static com.syntazo.coffeegrains.Iteration.takewhile;
+import static com.syntazo.coffeegrains.Iteration.zip;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.syntazo.coffeegrains.Columns.DoubleColumn;
+import com.syntazo.coffeegrains.Columns.IntColumn;
+import com.syntazo.coffeegrains.Iteration.Enum;
+import com.syntazo.coffeegrains.Iteration.IntIterable;
+import com.syntazo.coffeegrains.Iteration.Lambda1;
+import com.syntazo.coffeegrains.Iteration.Lambda2;
+
+/**
+ * Throughput of every combinator of <code>Iteration</code> next to the same work
+ * done with <code>java.util.stream</code> and with a plain loop. Each benchmark is one
+ * full pass over size elements, and the names put the three variants of a
+ * combinator side by side in the report: <code>mapIteration</code>,
+ * <code>mapStream</code>, <code>mapLoop</code>.
+ *
+ * Run with <code>-prof gc</code> to get the allocation rate per pass.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IterationBenchmark {
+    @Param({ "100", "10000", "1000000" })
+    int size;
+
+    List<Object> list;
+    Object[] array;
+    Iterable<?> source;
+    Iterable<?> linked;
+    Object[] small;
+    List<Object>[] shards;
+    int[] intArray;
+    double[] doubleArray;
+    IntColumn ints;
+    DoubleColumn doubles;
+
+    final Lambda1 twice = new Lambda1() {
+	public Object process(Object arg) {
+	    return (Integer) arg * 2;
+	}
+    };
+
+    final Lambda1 even = new Lambda1() {
+	public Object process(Object arg) {
+	    return (Integer) arg % 2 == 0 ? arg : null;
+	}
+    };
+
+    final Lambda1 head = new Lambda1() {
+	public Object process(Object arg) {
+	    return (Integer) arg < size / 2 ? arg : null;
+	}
+    };
+
+    final Lambda1 beforeHalf = new Lambda1() {
+	public Object process(Object arg) {
+	    return (Integer) arg < size / 2;
+	}
+    };
+
+    final Lambda2 times = new Lambda2() {
+	public Object process(Object arg1, Object arg2) {
+	    return (Integer) arg1 * (Integer) arg2;
+	}
+    };
+
+    final Lambda2 plus = new Lambda2() {
+	public Object process(Object arg1, Object arg2) {
+	    return (Integer) arg1 + (Integer) arg2;
+	}
+    };
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+	list = new ArrayList<Object>(size);
+	for (int i = 0; i < size; i++)
+	    list.add(i);
+	array = list.toArray();
+	source = iterable(array);
+	linked = new LinkedList<Object>(list);
+	small = new Object[] { 1, 2, 3, 4, 5, 6, 7 };
+	shards = new List[16];
+	for (int s = 0; s < shards.length; s++)
+	    shards[s] = new ArrayList<Object>();
+	for (int i = 0; i < size; i++)
+	    shards[i % shards.length].add(i);
+	intArray = new int[size];
+	doubleArray = new double[size];
+	for (int i = 0; i < size; i++)
+	    doubleArray[i] = intArray[i] = i;
+	ints = ints(intArray);
+	doubles = doubles(doubleArray);
+    }
+
+    static void drain(Iterable<?> iterable, Blackhole blackhole) {
+	for (Object obj : iterable)
+	    blackhole.consume(obj);
+    }
+
+    // range
+
+    @Benchmark
+    public void rangeIteration(Blackhole blackhole) {
+	PrimitiveIterator.OfInt iterator = range(size).iterator();
+	while (iterator.hasNext())
+	    blackhole.consume(iterator.nextInt());
+    }
+
+    @Benchmark
+    public void rangeIterationBoxed(Blackhole blackhole) {
+	IntIterable range = range(size);
+	drain(range, blackhole);
+    }
+
+    @Benchmark
+    public void rangeStream(Blackhole blackhole) {
+	IntStream.range(0, size).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void rangeLoop(Blackhole blackhole) {
+	for (int i = 0; i < size; i++)
+	    blackhole.consume(i);
+    }
+
+    // enumerate
+
+    @Benchmark
+    public void enumerateIteration(Blackhole blackhole) {
+	for (Enum e : enumerate(list))
+	    blackhole.consume(e.value);
+    }
+
+    @Benchmark
+    public void enumerateStream(Blackhole blackhole) {
+	IntStream.range(0, list.size()).forEach(i -> blackhole.consume(list.get(i)));
+    }
+
+    @Benchmark
+    public void enumerateLoop(Blackhole blackhole) {
+	int index = 0;
+	for (Object obj : list) {
+	    blackhole.consume(index++);
+	    blackhole.consume(obj);
+	}
+    }
+
+    // slice, second half, every other element
+
+    @Benchmark
+    public void sliceIteration(Blackhole blackhole) {
+	drain(slice(list, size / 2, size, 2), blackhole);
+    }
+
+    @Benchmark
+    public void sliceIterationSequential(Blackhole blackhole) {
+	drain(slice(linked, size / 2, size, 2), blackhole);
+    }
+
+    @Benchmark
+    public void sliceStream(Blackhole blackhole) {
+	IntStream.range(0, (size - size / 2 + 1) / 2)
+		.mapToObj(i -> list.get(size / 2 + i * 2))
+		.forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void sliceLoop(Blackhole blackhole) {
+	for (int i = size / 2; i < size; i += 2)
+	    blackhole.consume(list.get(i));
+    }
+
+    // map
+
+    @Benchmark
+    public void mapIteration(Blackhole blackhole) {
+	drain(map(twice, source), blackhole);
+    }
+
+    @Benchmark
+    public void mapStream(Blackhole blackhole) {
+	list.stream().map(twice).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void mapLoop(Blackhole blackhole) {
+	for (Object obj : array)
+	    blackhole.consume(twice.process(obj));
+    }
+
+    // zip
+
+    @Benchmark
+    public void zipIteration(Blackhole blackhole) {
+	drain(zip(source, source), blackhole);
+    }
+
+    @Benchmark
+    public void zipStream(Blackhole blackhole) {
+	IntStream.range(0, size).mapToObj(i -> new Object[] { array[i], array[i] })
+		.forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void zipLoop(Blackhole blackhole) {
+	for (int i = 0; i < size; i++)
+	    blackhole.consume(new Object[] { array[i], array[i] });
+    }
+
+    // filter
+
+    @Benchmark
+    public void filterIteration(Blackhole blackhole) {
+	drain(filter(even, source), blackhole);
+    }
+
+    @Benchmark
+    public void filterStream(Blackhole blackhole) {
+	list.stream().filter(obj -> even.process(obj) != null)
+		.forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void filterLoop(Blackhole blackhole) {
+	for (Object obj : array) {
+	    if (even.process(obj) != null)
+		blackhole.consume(obj);
+	}
+    }
+
+    // takewhile, the first half
+
+    @Benchmark
+    public void takewhileIteration(Blackhole blackhole) {
+	drain(takewhile(head, source), blackhole);
+    }
+
+    @Benchmark
+    public void takewhileStream(Blackhole blackhole) {
+	list.stream().takeWhile(obj -> head.process(obj) != null)
+		.forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void takewhileLoop(Blackhole blackhole) {
+	for (Object obj : array) {
+	    if (head.process(obj) == null)
+		break;
+	    blackhole.consume(obj);
+	}
+    }
+
+    // dropwhile, the second half
+
+    @Benchmark
+    public void dropwhileIteration(Blackhole blackhole) {
+	drain(dropwhile(beforeHalf, source), blackhole);
+    }
+
+    @Benchmark
+    public void dropwhileStream(Blackhole blackhole) {
+	list.stream().dropWhile(obj -> (Boolean) beforeHalf.process(obj))
+		.forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void dropwhileLoop(Blackhole blackhole) {
+	boolean dropping = true;
+	for (Object obj : array) {
+	    if (dropping && (Boolean) beforeHalf.process(obj))
+		continue;
+	    dropping = false;
+	    blackhole.consume(obj);
+	}
+    }
+
+    // reduce
+
+    @Benchmark
+    public Object reduceIteration() {
+	return reduce(plus, list, 0);
+    }
+
+    @Benchmark
+    public Object reduceStream() {
+	return list.stream().reduce(0, plus::process);
+    }
+
+    @Benchmark
+    public Object reduceLoop() {
+	Object result = 0;
+	for (Object obj : array)
+	    result = plus.process(result, obj);
+	return result;
+    }
+
+    // sum and dot over int and double columns
+
+    @Benchmark
+    public long sumIteration() {
+	return sum(ints);
+    }
+
+    @Benchmark
+    public long sumStream() {
+	return IntStream.of(intArray).asLongStream().sum();
+    }
+
+    @Benchmark
+    public long sumLoop() {
+	long sum = 0;
+	for (int i : intArray)
+	    sum += i;
+	return sum;
+    }
+
+    @Benchmark
+    public long dotIteration() {
+	return dot(ints, ints);
+    }
+
+    @Benchmark
+    public Object dotBoxed() {
+	return reduce(plus, map(times, list, list), 0);
+    }
+
+    @Benchmark
+    public long dotLoop() {
+	long dot = 0;
+	for (int i = 0; i < intArray.length; i++)
+	    dot += (long) intArray[i] * intArray[i];
+	return dot;
+    }
+
+    @Benchmark
+    public double dotDoubleIteration() {
+	return dot(doubles, doubles);
+    }
+
+    @Benchmark
+    public double dotDoubleLoop() {
+	double dot = 0;
+	for (int i = 0; i < doubleArray.length; i++)
+	    dot += doubleArray[i] * doubleArray[i];
+	return dot;
+    }
+
+    // chain, the source twice
+
+    @Benchmark
+    public void chainIteration(Blackhole blackhole) {
+	drain(chain(source, source), blackhole);
+    }
+
+    @Benchmark
+    public void chainStream(Blackhole blackhole) {
+	Stream.concat(list.stream(), list.stream()).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void chainLoop(Blackhole blackhole) {
+	for (Object obj : array)
+	    blackhole.consume(obj);
+	for (Object obj : array)
+	    blackhole.consume(obj);
+    }
+
+    // merge, 16 sorted shards
+
+    @Benchmark
+    public void mergeIteration(Blackhole blackhole) {
+	drain(merge(null, shards), blackhole);
+    }
+
+    @Benchmark
+    public void mergeStream(Blackhole blackhole) {
+	Stream.of(shards).flatMap(List::stream).sorted().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void mergeLoop(Blackhole blackhole) {
+	PriorityQueue<Object[]> heads = new PriorityQueue<Object[]>(
+		(a, b) -> ((Comparable<Object>) a[0]).compareTo(b[0]));
+	for (List<Object> shard : shards) {
+	    Iterator<Object> iterator = shard.iterator();
+	    if (iterator.hasNext())
+		heads.add(new Object[] { iterator.next(), iterator });
+	}
+	while (heads.isEmpty() == false) {
+	    Object[] head = heads.poll();
+	    blackhole.consume(head[0]);
+	    Iterator<Object> iterator = (Iterator<Object>) head[1];
+	    if (iterator.hasNext()) {
+		head[0] = iterator.next();
+		heads.add(head);
+	    }
+	}
+    }
+
+    // cycle, size elements out of a short source
+
+    @Benchmark
+    public void cycleIteration(Blackhole blackhole) {
+	drain(iterate(size, cycle(iterable(small))), blackhole);
+    }
+
+    @Benchmark
+    public void cycleStream(Blackhole blackhole) {
+	IntStream.range(0, size).mapToObj(i -> small[i % small.length])
+		.forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void cycleLoop(Blackhole blackhole) {
+	for (int i = 0, j = 0; i < size; i++, j = j + 1 == small.length ? 0 : j + 1)
+	    blackhole.consume(small[j]);
+    }
+
+    // repeat, the same object size times
+
+    @Benchmark
+    public void repeatIteration(Blackhole blackhole) {
+	drain(iterate(size, repeat(this)), blackhole);
+    }
+
+    @Benchmark
+    public void repeatIterationCount(Blackhole blackhole) {
+	drain(repeat(size, iterable(this)), blackhole);
+    }
+
+    @Benchmark
+    public void repeatStream(Blackhole blackhole) {
+	Collections.nCopies(size, this).stream().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void repeatLoop(Blackhole blackhole) {
+	for (int i = 0; i < size; i++)
+	    blackhole.consume(this);
+    }
+
+    // join
+
+    @Benchmark
+    public String joinIteration() {
+	return join(list, ",");
+    }
+
+    @Benchmark
+    public String joinStream() {
+	return list.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    @Benchmark
+    public String joinLoop() {
+	StringBuilder result = new StringBuilder();
+	for (int i = 0; i < array.length; i++) {
+	    if (i > 0)
+		result.append(',');
+	    result.append(array[i]);
+	}
+	return result.toString();
+    }
+}
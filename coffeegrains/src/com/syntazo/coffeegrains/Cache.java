@@ -0,0 +1,274 @@
+package com.syntazo.coffeegrains;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.syntazo.coffeegrains.Iteration.BatchIterator;
+import com.syntazo.coffeegrains.Iteration.SizedIterable;
+
+/**
+ * The iterable behind <code>Iteration.cached</code>. The source is iterated once,
+ * lazily, by whichever iterator first runs past what has been read so far, and
+ * every element read is saved: the first limit on the heap, the rest
+ * serialized to a temporary file that each iterator reads back with its own
+ * stream. The iterators may run on different threads, each step of one locks
+ * the cache while it reads the source or what has been saved. The stream
+ * writing the file is closed once the source is exhausted, and the file is
+ * deleted when the cache is closed or collected.
+ *
+ * @see Iteration#cached(Iterable, int)
+ */
+class Cache implements SizedIterable<Object>, AutoCloseable {
+    /**
+     * How many elements are written to the spill file between resets of its
+     * stream, which otherwise keeps a reference to every object written.
+     */
+    final static int RESET = 1024;
+
+    final Iterable<?> source;
+    final int limit;
+    final ArrayList<Object> memory = new ArrayList<Object>();
+    Iterator<?> iterator;
+    boolean done = false;
+    Object last;
+    Spill spill;
+    Cleaner.Cleanable cleanable;
+    long spilled = 0;
+
+    Cache(Iterable<?> source, int limit) {
+	this.source = source;
+	this.limit = limit;
+    }
+
+    long size() {
+	return memory.size() + spilled;
+    }
+
+    /**
+     * Reads the next element of the source into the cache and into last, which
+     * so always holds the element at size() - 1.
+     *
+     * @return false once the source is exhausted.
+     */
+    boolean fill() {
+	if (done)
+	    return false;
+	if (iterator == null)
+	    iterator = source != null ? source.iterator() : Iteration.Null;
+	if (iterator.hasNext() == false) {
+	    done = true;
+	    iterator = null;
+	    if (spill != null)
+		spill.finish();
+	    return false;
+	}
+	last = iterator.next();
+	if (memory.size() < limit)
+	    memory.add(last);
+	else
+	    write(last);
+	return true;
+    }
+
+    void write(Object obj) {
+	if (spill == null) {
+	    spill = new Spill();
+	    cleanable = Prefetch.CLEANER.register(this, spill);
+	}
+	spill.write(obj);
+	spilled++;
+    }
+
+    /**
+     * The spill file and the stream writing it, apart from the cache so that the
+     * clean up action does not hold on to it.
+     */
+    static class Spill implements Runnable {
+	final Path file;
+	ObjectOutputStream out;
+	long count = 0;
+	boolean flushed = true;
+
+	Spill() {
+	    try {
+		file = Files.createTempFile("coffeegrains", ".cache");
+	    } catch (IOException e) {
+		throw new UncheckedIOException(e);
+	    }
+	    try {
+		out = new ObjectOutputStream(new BufferedOutputStream(
+			Files.newOutputStream(file)));
+	    } catch (IOException e) {
+		Sort.delete(file);
+		throw new UncheckedIOException(e);
+	    }
+	}
+
+	void write(Object obj) {
+	    try {
+		out.writeObject(obj);
+		if (++count % RESET == 0)
+		    out.reset();
+		flushed = false;
+	    } catch (IOException e) {
+		throw new UncheckedIOException(e);
+	    }
+	}
+
+	/**
+	 * @return a stream over the file, positioned at its first element.
+	 */
+	ObjectInputStream read() throws IOException {
+	    flush();
+	    return new ObjectInputStream(new BufferedInputStream(
+		    Files.newInputStream(file)));
+	}
+
+	void flush() throws IOException {
+	    if (flushed == false) {
+		out.flush();
+		flushed = true;
+	    }
+	}
+
+	/**
+	 * Closes the stream once every element has been written.
+	 */
+	void finish() {
+	    try {
+		if (out != null)
+		    out.close();
+		flushed = true;
+	    } catch (IOException e) {
+		throw new UncheckedIOException(e);
+	    } finally {
+		out = null;
+	    }
+	}
+
+	/**
+	 * Closes the stream and deletes the file.
+	 */
+	public void run() {
+	    try {
+		finish();
+	    } finally {
+		Sort.delete(file);
+	    }
+	}
+    }
+
+    /**
+     * Drops the saved elements and deletes the spill file, so that the next
+     * iterator reads the source again. Iterators still open on the cache must
+     * not be used afterwards.
+     */
+    public synchronized void close() {
+	Iterator<?> reading = iterator;
+	Cleaner.Cleanable clean = cleanable;
+	iterator = null;
+	cleanable = null;
+	spill = null;
+	spilled = 0;
+	memory.clear();
+	last = null;
+	done = false;
+	try {
+	    Iteration.close(reading);
+	} finally {
+	    if (clean != null)
+		clean.clean();
+	}
+    }
+
+    public Iterator<Object> iterator() {
+	return new BatchIterator<Object>() {
+	    long position = 0;
+	    ObjectInputStream in;
+	    long streamed = limit;
+
+	    public boolean hasNext() {
+		synchronized (Cache.this) {
+		    if (position < size() || fill())
+			return true;
+		}
+		close();
+		return false;
+	    }
+
+	    public Object next() {
+		synchronized (Cache.this) {
+		    if (position < memory.size())
+			return memory.get((int) position++);
+		    if (position == size() - 1) {
+			position++;
+			return last;
+		    }
+		    if (position < size())
+			return spilled(position++);
+		    if (fill() == false)
+			throw new NoSuchElementException();
+		    position++;
+		    return last;
+		}
+	    }
+
+	    /**
+	     * Reads the spill file up to the element at index, skipping the ones
+	     * this iterator got from last. streamed counts the elements read from
+	     * the stream, which only those reads move.
+	     */
+	    Object spilled(long index) {
+		try {
+		    if (in == null)
+			in = spill.read();
+		    spill.flush();
+		    for (; streamed < index; streamed++)
+			in.readObject();
+		    streamed++;
+		    return in.readObject();
+		} catch (IOException e) {
+		    throw new UncheckedIOException(e);
+		} catch (ClassNotFoundException e) {
+		    throw new IllegalStateException(e);
+		}
+	    }
+
+	    public void close() {
+		try {
+		    if (in != null)
+			in.close();
+		    in = null;
+		} catch (IOException e) {
+		    throw new UncheckedIOException(e);
+		}
+	    }
+
+	    public void remove() {
+	    }
+	};
+    }
+
+    public long sizeBound() {
+	return Iteration.sizeBound(source);
+    }
+
+    public boolean isSizeExact() {
+	return Iteration.isSizeExact(source);
+    }
+
+    @Override
+    public String toString() {
+	return Iteration.preview(this);
+    }
+}
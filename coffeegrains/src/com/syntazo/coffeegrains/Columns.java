@@ -0,0 +1,520 @@
+package com.syntazo.coffeegrains;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+import com.syntazo.coffeegrains.Iteration.DoubleIterable;
+import com.syntazo.coffeegrains.Iteration.IndexedIterable;
+import com.syntazo.coffeegrains.Iteration.IntBatchIterator;
+import com.syntazo.coffeegrains.Iteration.IntIterable;
+import com.syntazo.coffeegrains.Iteration.LongBatchIterator;
+import com.syntazo.coffeegrains.Iteration.LongIterable;
+
+/**
+ * Compact primitive storage for the results of an iterable. A column holds its
+ * values unboxed in an <code>int</code>, <code>long</code> or <code>double</code>
+ * buffer, on the heap or off it in a direct <code>ByteBuffer</code>, and is an
+ * iterable again: sized, readable by position and splitting evenly, so it can
+ * feed <code>slice</code>, <code>parallel</code> or a parallel stream. A
+ * <code>List</code> of boxed values takes four to five times the memory.
+ * <pre>
+ * -----------------------------------------------------
+ * IntColumn ids = toInts(map(parseId, lines(path)), true);
+ * intStream(ids, true).filter(valid).count();
+ * -----------------------------------------------------
+ * </pre>
+ *
+ * @see Iteration#toInts(Iterable, boolean)
+ * @see Iteration#toLongs(Iterable, boolean)
+ * @see Iteration#toDoubles(Iterable, boolean)
+ */
+public class Columns {
+    /**
+     * The first capacity of a column whose size is not known up front.
+     */
+    final static int INITIAL = 1024;
+
+    /**
+     * A sized, indexed int column, read by <code>nextInt()</code> without boxing.
+     */
+    public static class IntColumn implements IntIterable, IndexedIterable<Integer> {
+	final IntBuffer data;
+
+	IntColumn(IntBuffer data) {
+	    this.data = data;
+	}
+
+	public int size() {
+	    return data.limit();
+	}
+
+	public Integer get(int index) {
+	    return getInt(index);
+	}
+
+	public int getInt(int index) {
+	    return data.get(index);
+	}
+
+	/**
+	 * @return true if the values are stored off the heap.
+	 */
+	public boolean isDirect() {
+	    return data.isDirect();
+	}
+
+	public int[] toArray() {
+	    int[] array = new int[size()];
+	    data.duplicate().get(array);
+	    return array;
+	}
+
+	public PrimitiveIterator.OfInt iterator() {
+	    final IntBuffer view = data.duplicate();
+	    return new IntBatchIterator() {
+		public boolean hasNext() {
+		    return view.hasRemaining();
+		}
+
+		public int nextInt() {
+		    if (view.hasRemaining() == false)
+			throw new NoSuchElementException();
+		    return view.get();
+		}
+
+		public int nextBatch(int[] buffer, int max) {
+		    int n = Math.max(Math.min(max, view.remaining()), 0);
+		    view.get(buffer, 0, n);
+		    return n;
+		}
+
+		public void remove() {
+		}
+	    };
+	}
+
+	public Spliterator.OfInt spliterator() {
+	    return spliterator(0, size());
+	}
+
+	Spliterator.OfInt spliterator(final int from, final int to) {
+	    return new Spliterator.OfInt() {
+		int index = from;
+
+		public boolean tryAdvance(IntConsumer action) {
+		    if (index >= to)
+			return false;
+		    action.accept(data.get(index++));
+		    return true;
+		}
+
+		public void forEachRemaining(IntConsumer action) {
+		    int i = index;
+		    index = to;
+		    for (; i < to; i++)
+			action.accept(data.get(i));
+		}
+
+		public Spliterator.OfInt trySplit() {
+		    int middle = (index + to) >>> 1;
+		    if (middle <= index)
+			return null;
+		    Spliterator.OfInt prefix = spliterator(index, middle);
+		    index = middle;
+		    return prefix;
+		}
+
+		public long estimateSize() {
+		    return to - index;
+		}
+
+		public int characteristics() {
+		    return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+		}
+	    };
+	}
+
+	@Override
+	public String toString() {
+	    return Iteration.preview(this);
+	}
+    }
+
+    /**
+     * A sized, indexed long column, read by <code>nextLong()</code> without boxing.
+     */
+    public static class LongColumn implements LongIterable, IndexedIterable<Long> {
+	final LongBuffer data;
+
+	LongColumn(LongBuffer data) {
+	    this.data = data;
+	}
+
+	public int size() {
+	    return data.limit();
+	}
+
+	public Long get(int index) {
+	    return getLong(index);
+	}
+
+	public long getLong(int index) {
+	    return data.get(index);
+	}
+
+	/**
+	 * @return true if the values are stored off the heap.
+	 */
+	public boolean isDirect() {
+	    return data.isDirect();
+	}
+
+	public long[] toArray() {
+	    long[] array = new long[size()];
+	    data.duplicate().get(array);
+	    return array;
+	}
+
+	public PrimitiveIterator.OfLong iterator() {
+	    final LongBuffer view = data.duplicate();
+	    return new LongBatchIterator() {
+		public boolean hasNext() {
+		    return view.hasRemaining();
+		}
+
+		public long nextLong() {
+		    if (view.hasRemaining() == false)
+			throw new NoSuchElementException();
+		    return view.get();
+		}
+
+		public int nextBatch(long[] buffer, int max) {
+		    int n = Math.max(Math.min(max, view.remaining()), 0);
+		    view.get(buffer, 0, n);
+		    return n;
+		}
+
+		public void remove() {
+		}
+	    };
+	}
+
+	public Spliterator.OfLong spliterator() {
+	    return spliterator(0, size());
+	}
+
+	Spliterator.OfLong spliterator(final int from, final int to) {
+	    return new Spliterator.OfLong() {
+		int index = from;
+
+		public boolean tryAdvance(LongConsumer action) {
+		    if (index >= to)
+			return false;
+		    action.accept(data.get(index++));
+		    return true;
+		}
+
+		public void forEachRemaining(LongConsumer action) {
+		    int i = index;
+		    index = to;
+		    for (; i < to; i++)
+			action.accept(data.get(i));
+		}
+
+		public Spliterator.OfLong trySplit() {
+		    int middle = (index + to) >>> 1;
+		    if (middle <= index)
+			return null;
+		    Spliterator.OfLong prefix = spliterator(index, middle);
+		    index = middle;
+		    return prefix;
+		}
+
+		public long estimateSize() {
+		    return to - index;
+		}
+
+		public int characteristics() {
+		    return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+		}
+	    };
+	}
+
+	@Override
+	public String toString() {
+	    return Iteration.preview(this);
+	}
+    }
+
+    /**
+     * A sized, indexed double column, read by <code>nextDouble()</code> without boxing.
+     */
+    public static class DoubleColumn implements DoubleIterable, IndexedIterable<Double> {
+	final DoubleBuffer data;
+
+	DoubleColumn(DoubleBuffer data) {
+	    this.data = data;
+	}
+
+	public int size() {
+	    return data.limit();
+	}
+
+	public Double get(int index) {
+	    return getDouble(index);
+	}
+
+	public double getDouble(int index) {
+	    return data.get(index);
+	}
+
+	/**
+	 * @return true if the values are stored off the heap.
+	 */
+	public boolean isDirect() {
+	    return data.isDirect();
+	}
+
+	public double[] toArray() {
+	    double[] array = new double[size()];
+	    data.duplicate().get(array);
+	    return array;
+	}
+
+	public PrimitiveIterator.OfDouble iterator() {
+	    final DoubleBuffer view = data.duplicate();
+	    return new PrimitiveIterator.OfDouble() {
+		public boolean hasNext() {
+		    return view.hasRemaining();
+		}
+
+		public double nextDouble() {
+		    if (view.hasRemaining() == false)
+			throw new NoSuchElementException();
+		    return view.get();
+		}
+
+		public void remove() {
+		}
+	    };
+	}
+
+	public Spliterator.OfDouble spliterator() {
+	    return spliterator(0, size());
+	}
+
+	Spliterator.OfDouble spliterator(final int from, final int to) {
+	    return new Spliterator.OfDouble() {
+		int index = from;
+
+		public boolean tryAdvance(DoubleConsumer action) {
+		    if (index >= to)
+			return false;
+		    action.accept(data.get(index++));
+		    return true;
+		}
+
+		public void forEachRemaining(DoubleConsumer action) {
+		    int i = index;
+		    index = to;
+		    for (; i < to; i++)
+			action.accept(data.get(i));
+		}
+
+		public Spliterator.OfDouble trySplit() {
+		    int middle = (index + to) >>> 1;
+		    if (middle <= index)
+			return null;
+		    Spliterator.OfDouble prefix = spliterator(index, middle);
+		    index = middle;
+		    return prefix;
+		}
+
+		public long estimateSize() {
+		    return to - index;
+		}
+
+		public int characteristics() {
+		    return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+		}
+	    };
+	}
+
+	@Override
+	public String toString() {
+	    return Iteration.preview(this);
+	}
+    }
+
+    static IntColumn wrap(int[] values) {
+	return new IntColumn(IntBuffer.wrap(values));
+    }
+
+    static LongColumn wrap(long[] values) {
+	return new LongColumn(LongBuffer.wrap(values));
+    }
+
+    static DoubleColumn wrap(double[] values) {
+	return new DoubleColumn(DoubleBuffer.wrap(values));
+    }
+    static IntColumn toInts(Iterable<?> iterable, boolean direct) {
+	int size = Iteration.arraySize(iterable);
+	IntBuffer data = allocateInts(size >= 0 ? size : (int) Math.min(INITIAL,
+		Iteration.sizeBound(iterable)), direct);
+	if (iterable instanceof IntIterable) {
+	    PrimitiveIterator.OfInt iterator = ((IntIterable) iterable).iterator();
+	    int[] batch = new int[Iteration.BATCH];
+	    int n;
+	    while ((n = Iteration.nextBatch(iterator, batch, batch.length)) > 0)
+		data = room(data, n, direct).put(batch, 0, n);
+	} else {
+	    Iterator<?> iterator = iterable != null ? iterable.iterator()
+		    : Iteration.Null;
+	    Object[] batch = new Object[Iteration.BATCH];
+	    int n;
+	    while ((n = Iteration.nextBatch(iterator, batch, batch.length)) > 0) {
+		data = room(data, n, direct);
+		for (int i = 0; i < n; i++) {
+		    data.put(((Number) batch[i]).intValue());
+		    batch[i] = null;
+		}
+	    }
+	}
+	data.flip();
+	if (data.limit() < data.capacity())
+	    data = room(allocateInts(0, direct), data.limit(), direct).put(data)
+		    .flip();
+	return new IntColumn(data);
+    }
+
+    static IntBuffer allocateInts(int size, boolean direct) {
+	return direct ? ByteBuffer.allocateDirect(Math.multiplyExact(size, 4))
+		.order(ByteOrder.nativeOrder()).asIntBuffer() : IntBuffer.allocate(size);
+    }
+
+    /**
+     * @return data, or a copy of it with room for n more values.
+     */
+    static IntBuffer room(IntBuffer data, int n, boolean direct) {
+	if (data.remaining() >= n)
+	    return data;
+	int capacity = Math.max(Math.addExact(data.position(), n),
+		(int) Math.min(Integer.MAX_VALUE - 8, data.capacity() * 2L));
+	IntBuffer grown = allocateInts(capacity, direct);
+	data.flip();
+	return grown.put(data);
+    }
+
+    static LongColumn toLongs(Iterable<?> iterable, boolean direct) {
+	int size = Iteration.arraySize(iterable);
+	LongBuffer data = allocateLongs(size >= 0 ? size : (int) Math.min(INITIAL,
+		Iteration.sizeBound(iterable)), direct);
+	if (iterable instanceof LongIterable) {
+	    PrimitiveIterator.OfLong iterator = ((LongIterable) iterable).iterator();
+	    long[] batch = new long[Iteration.BATCH];
+	    int n;
+	    while ((n = Iteration.nextBatch(iterator, batch, batch.length)) > 0)
+		data = room(data, n, direct).put(batch, 0, n);
+	} else if (iterable instanceof IntIterable) {
+	    PrimitiveIterator.OfInt iterator = ((IntIterable) iterable).iterator();
+	    int[] batch = new int[Iteration.BATCH];
+	    int n;
+	    while ((n = Iteration.nextBatch(iterator, batch, batch.length)) > 0) {
+		data = room(data, n, direct);
+		for (int i = 0; i < n; i++)
+		    data.put(batch[i]);
+	    }
+	} else {
+	    Iterator<?> iterator = iterable != null ? iterable.iterator()
+		    : Iteration.Null;
+	    Object[] batch = new Object[Iteration.BATCH];
+	    int n;
+	    while ((n = Iteration.nextBatch(iterator, batch, batch.length)) > 0) {
+		data = room(data, n, direct);
+		for (int i = 0; i < n; i++) {
+		    data.put(((Number) batch[i]).longValue());
+		    batch[i] = null;
+		}
+	    }
+	}
+	data.flip();
+	if (data.limit() < data.capacity())
+	    data = room(allocateLongs(0, direct), data.limit(), direct).put(data)
+		    .flip();
+	return new LongColumn(data);
+    }
+
+    static LongBuffer allocateLongs(int size, boolean direct) {
+	return direct ? ByteBuffer.allocateDirect(Math.multiplyExact(size, 8))
+		.order(ByteOrder.nativeOrder()).asLongBuffer() : LongBuffer.allocate(size);
+    }
+
+    /**
+     * @return data, or a copy of it with room for n more values.
+     */
+    static LongBuffer room(LongBuffer data, int n, boolean direct) {
+	if (data.remaining() >= n)
+	    return data;
+	int capacity = Math.max(Math.addExact(data.position(), n),
+		(int) Math.min(Integer.MAX_VALUE - 8, data.capacity() * 2L));
+	LongBuffer grown = allocateLongs(capacity, direct);
+	data.flip();
+	return grown.put(data);
+    }
+
+    static DoubleColumn toDoubles(Iterable<?> iterable, boolean direct) {
+	int size = Iteration.arraySize(iterable);
+	DoubleBuffer data = allocateDoubles(size >= 0 ? size : (int) Math.min(INITIAL,
+		Iteration.sizeBound(iterable)), direct);
+	if (iterable instanceof DoubleIterable) {
+	    PrimitiveIterator.OfDouble iterator = ((DoubleIterable) iterable).iterator();
+	    while (iterator.hasNext())
+		data = room(data, 1, direct).put(iterator.nextDouble());
+	} else {
+	    Iterator<?> iterator = iterable != null ? iterable.iterator()
+		    : Iteration.Null;
+	    Object[] batch = new Object[Iteration.BATCH];
+	    int n;
+	    while ((n = Iteration.nextBatch(iterator, batch, batch.length)) > 0) {
+		data = room(data, n, direct);
+		for (int i = 0; i < n; i++) {
+		    data.put(((Number) batch[i]).doubleValue());
+		    batch[i] = null;
+		}
+	    }
+	}
+	data.flip();
+	if (data.limit() < data.capacity())
+	    data = room(allocateDoubles(0, direct), data.limit(), direct).put(data)
+		    .flip();
+	return new DoubleColumn(data);
+    }
+
+    static DoubleBuffer allocateDoubles(int size, boolean direct) {
+	return direct ? ByteBuffer.allocateDirect(Math.multiplyExact(size, 8))
+		.order(ByteOrder.nativeOrder()).asDoubleBuffer() : DoubleBuffer.allocate(size);
+    }
+
+    /**
+     * @return data, or a copy of it with room for n more values.
+     */
+    static DoubleBuffer room(DoubleBuffer data, int n, boolean direct) {
+	if (data.remaining() >= n)
+	    return data;
+	int capacity = Math.max(Math.addExact(data.position(), n),
+		(int) Math.min(Integer.MAX_VALUE - 8, data.capacity() * 2L));
+	DoubleBuffer grown = allocateDoubles(capacity, direct);
+	data.flip();
+	return grown.put(data);
+    }
+}
@@ -0,0 +1,350 @@
+package com.syntazo.coffeegrains;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import com.syntazo.coffeegrains.Iteration.BatchIterator;
+import com.syntazo.coffeegrains.Iteration.SizedIterable;
+import com.syntazo.coffeegrains.Iteration.Tuple;
+
+/**
+ * The <code>Iterable</code> behind <code>product</code>, <code>permutations</code> and
+ * <code>combinations</code>. Its elements are <code>Tuple</code>s in the order
+ * Python's itertools yields them, and each one is numbered by its rank in that
+ * order. The iterator keeps the positions of the current tuple in an
+ * <code>int[]</code> and advances it in place, <code>get(rank)</code> builds the
+ * tuple of any rank directly, and <code>range</code> and <code>split</code> cut the
+ * ranks into pieces that can be enumerated independently, on different threads.
+ * <pre>
+ * -----------------------------------------------------
+ * for (Combinatoric part : combinations(range(40), 6).split(8))
+ *     pool.submit(() -> search(part));
+ * -----------------------------------------------------
+ * </pre>
+ *
+ * @see Iteration#product(Iterable...)
+ * @see Iteration#permutations(Iterable, int)
+ * @see Iteration#combinations(Iterable, int)
+ */
+public class Combinatoric implements SizedIterable<Object> {
+    final static int PRODUCT = 0;
+    final static int PERMUTATIONS = 1;
+    final static int COMBINATIONS = 2;
+
+    final int kind;
+    final Object[][] pools;
+    final int r;
+    final long from;
+    final long to;
+    final boolean reuse;
+
+    Combinatoric(int kind, Object[][] pools, int r) {
+	this.kind = kind;
+	this.pools = pools;
+	this.r = r;
+	this.from = 0;
+	this.reuse = false;
+	this.to = size();
+    }
+
+    private Combinatoric(Combinatoric whole, long from, long to, boolean reuse) {
+	this.kind = whole.kind;
+	this.pools = whole.pools;
+	this.r = whole.r;
+	this.from = from;
+	this.to = to;
+	this.reuse = reuse;
+    }
+
+    /**
+     * @return the number of tuples, from the first rank of this range to the last.
+     */
+    public long count() {
+	return to - from;
+    }
+
+    public long sizeBound() {
+	return count();
+    }
+
+    public boolean isSizeExact() {
+	return true;
+    }
+
+    /**
+     * @return the tuple of the given rank, counted from the start of this range.
+     */
+    public Tuple get(long rank) {
+	if (rank < 0 || rank >= count())
+	    throw new IndexOutOfBoundsException("rank " + rank + " of "
+		    + count());
+	int[] indices = new int[r];
+	unrank(from + rank, indices);
+	return fill(indices, new Tuple(new Object[r]));
+    }
+
+    /**
+     * @return the tuples of rank start up to stop, counted from the start of this
+     * range.
+     */
+    public Combinatoric range(long start, long stop) {
+	if (start < 0 || stop < start || stop > count())
+	    throw new IllegalArgumentException("range(" + start + "," + stop
+		    + ") of " + count());
+	return new Combinatoric(this, from + start, from + stop, reuse);
+    }
+
+    /**
+     * @return this range cut into parts ranges of nearly equal counts.
+     */
+    public Combinatoric[] split(int parts) {
+	if (parts < 1)
+	    throw new IllegalArgumentException("parts " + parts);
+	Combinatoric[] split = new Combinatoric[parts];
+	long count = count();
+	for (int p = 0; p < parts; p++)
+	    split[p] = range(count / parts * p + Math.min(p, count % parts),
+		    count / parts * (p + 1) + Math.min(p + 1, count % parts));
+	return split;
+    }
+
+    /**
+     * @return the same tuples, but every iterator returns one <code>Tuple</code>
+     * whose values are overwritten by each call to next, so it must not be kept.
+     */
+    public Combinatoric reuse() {
+	return new Combinatoric(this, from, to, true);
+    }
+
+    public Iterator<Object> iterator() {
+	return new BatchIterator<Object>() {
+	    long rank = from;
+	    int[] indices;
+	    boolean[] used;
+	    Tuple tuple;
+
+	    public boolean hasNext() {
+		return rank < to;
+	    }
+
+	    public Object next() {
+		if (rank >= to)
+		    throw new NoSuchElementException();
+		if (indices == null) {
+		    indices = new int[r];
+		    unrank(rank, indices);
+		    if (kind == PERMUTATIONS)
+			used = used(indices);
+		} else
+		    advance(indices, used);
+		rank++;
+		if (reuse == false)
+		    return fill(indices, new Tuple(new Object[r]));
+		if (tuple == null)
+		    tuple = new Tuple(new Object[r]);
+		return fill(indices, tuple);
+	    }
+
+	    public void remove() {
+	    }
+	};
+    }
+
+    /**
+     * @return a <code>SIZED</code> spliterator that splits by rank.
+     */
+    public Spliterator<Object> spliterator() {
+	return new Spliterator<Object>() {
+	    Combinatoric rest = Combinatoric.this;
+	    Iterator<Object> iterator;
+	    long taken = 0;
+
+	    public boolean tryAdvance(Consumer<? super Object> action) {
+		if (iterator == null)
+		    iterator = rest.iterator();
+		if (iterator.hasNext() == false)
+		    return false;
+		taken++;
+		action.accept(iterator.next());
+		return true;
+	    }
+
+	    public Spliterator<Object> trySplit() {
+		if (iterator != null || rest.count() < 2)
+		    return null;
+		long middle = rest.count() / 2;
+		Spliterator<Object> prefix = rest.range(0, middle).spliterator();
+		rest = rest.range(middle, rest.count());
+		return prefix;
+	    }
+
+	    public long estimateSize() {
+		return rest.count() - taken;
+	    }
+
+	    public int characteristics() {
+		return ORDERED | SIZED | SUBSIZED;
+	    }
+	};
+    }
+
+    @Override
+    public String toString() {
+	return Iteration.preview(this);
+    }
+
+    Tuple fill(int[] indices, Tuple tuple) {
+	for (int i = 0; i < r; i++)
+	    tuple.values[i] = pools[kind == PRODUCT ? i : 0][indices[i]];
+	return tuple;
+    }
+
+    /**
+     * @return the number of tuples of the whole space.
+     * @throws ArithmeticException if it does not fit a long.
+     */
+    long size() {
+	int n = pools.length > 0 ? pools[0].length : 0;
+	switch (kind) {
+	case PRODUCT:
+	    long size = 1;
+	    for (Object[] pool : pools)
+		size = Math.multiplyExact(size, pool.length);
+	    return size;
+	case PERMUTATIONS:
+	    return permutations(n, r);
+	default:
+	    return combinations(n, r);
+	}
+    }
+
+    static long permutations(int n, int r) {
+	if (r > n)
+	    return 0;
+	long count = 1;
+	for (int i = 0; i < r; i++)
+	    count = Math.multiplyExact(count, n - i);
+	return count;
+    }
+
+    /**
+     * Steps through C(n, i + 1) = C(n, i) * (n - i) / (i + 1), dividing out the
+     * common factor of C(n, i) and i + 1 first, so that only a count that does
+     * not fit a long overflows.
+     */
+    static long combinations(int n, int r) {
+	if (r > n)
+	    return 0;
+	r = Math.min(r, n - r);
+	long count = 1;
+	for (int i = 0; i < r; i++) {
+	    long g = gcd(count, i + 1);
+	    count = Math.multiplyExact(count / g, (n - i) / ((i + 1) / g));
+	}
+	return count;
+    }
+
+    static long gcd(long a, long b) {
+	while (b != 0) {
+	    long t = a % b;
+	    a = b;
+	    b = t;
+	}
+	return a;
+    }
+
+    /**
+     * Sets indices to the positions of the tuple of the given rank.
+     */
+    void unrank(long rank, int[] indices) {
+	int n = pools.length > 0 ? pools[0].length : 0;
+	switch (kind) {
+	case PRODUCT:
+	    for (int i = r - 1; i >= 0; i--) {
+		indices[i] = (int) (rank % pools[i].length);
+		rank /= pools[i].length;
+	    }
+	    break;
+	case PERMUTATIONS:
+	    boolean[] used = new boolean[n];
+	    for (int i = 0; i < r; i++) {
+		long block = permutations(n - i - 1, r - i - 1);
+		long choice = rank / block;
+		rank %= block;
+		int v = -1;
+		for (long c = 0; c <= choice; c++)
+		    while (used[++v])
+			;
+		indices[i] = v;
+		used[v] = true;
+	    }
+	    break;
+	default:
+	    int v = 0;
+	    for (int i = 0; i < r; i++, v++) {
+		long block;
+		while (rank >= (block = combinations(n - v - 1, r - i - 1))) {
+		    rank -= block;
+		    v++;
+		}
+		indices[i] = v;
+	    }
+	}
+    }
+
+    /**
+     * @return the positions of the pool taken by a permutation.
+     */
+    boolean[] used(int[] indices) {
+	boolean[] used = new boolean[pools.length > 0 ? pools[0].length : 0];
+	for (int i = 0; i < r; i++)
+	    used[indices[i]] = true;
+	return used;
+    }
+
+    /**
+     * Moves indices on to the positions of the next tuple, there must be one.
+     * For permutations, used marks the positions indices takes and is kept up
+     * to date, so a step allocates nothing.
+     */
+    void advance(int[] indices, boolean[] used) {
+	int n = pools.length > 0 ? pools[0].length : 0;
+	switch (kind) {
+	case PRODUCT:
+	    for (int i = r - 1; i >= 0; i--) {
+		if (++indices[i] < pools[i].length)
+		    return;
+		indices[i] = 0;
+	    }
+	    return;
+	case PERMUTATIONS:
+	    for (int i = r - 1; i >= 0; i--) {
+		used[indices[i]] = false;
+		int v = indices[i] + 1;
+		while (v < n && used[v])
+		    v++;
+		if (v < n) {
+		    indices[i] = v;
+		    used[v] = true;
+		    for (int j = i + 1, u = 0; j < r; j++, u++) {
+			while (used[u])
+			    u++;
+			indices[j] = u;
+			used[u] = true;
+		    }
+		    return;
+		}
+	    }
+	    return;
+	default:
+	    int i = r - 1;
+	    while (indices[i] == n - r + i)
+		i--;
+	    indices[i]++;
+	    for (int j = i + 1; j < r; j++)
+		indices[j] = indices[j - 1] + 1;
+	}
+    }
+}
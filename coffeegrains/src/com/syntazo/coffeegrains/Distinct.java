@@ -0,0 +1,441 @@
+package com.syntazo.coffeegrains;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterators;
+
+import com.syntazo.coffeegrains.Iteration.BatchIterator;
+import com.syntazo.coffeegrains.Iteration.IntBatchIterator;
+import com.syntazo.coffeegrains.Iteration.IntIterable;
+import com.syntazo.coffeegrains.Iteration.IntIteratorMaker;
+import com.syntazo.coffeegrains.Iteration.IteratorMaker;
+import com.syntazo.coffeegrains.Iteration.Lambda;
+import com.syntazo.coffeegrains.Iteration.Lambda1;
+import com.syntazo.coffeegrains.Iteration.LongBatchIterator;
+import com.syntazo.coffeegrains.Iteration.LongIterable;
+import com.syntazo.coffeegrains.Iteration.LongIteratorMaker;
+
+/**
+ * The iterables behind <code>Iteration.distinct</code> and
+ * <code>Iteration.uniqueJustSeen</code>. Each iterator of <code>distinct</code>
+ * remembers the keys it has returned: int and long keys, boxed or not, in open
+ * addressing sets of primitives, about 5 to 11 bytes an int key and 11 to 21 a
+ * long one against some 50 for a <code>HashSet</code> entry of a boxed key, and
+ * any other key in a <code>HashSet</code>. The approximate flavour keeps a Bloom filter of a fixed
+ * size instead, and <code>uniqueJustSeen</code> only the last key.
+ *
+ * @see Iteration#distinct(Lambda, Iterable)
+ * @see Iteration#uniqueJustSeen(Lambda, Iterable)
+ */
+class Distinct {
+    /**
+     * An open addressing set of ints, probed linearly from a Fibonacci hash of
+     * the key. 0 marks an empty slot, so it is kept aside.
+     */
+    static class IntSet {
+	int[] table;
+	int shift;
+	int size = 0;
+	boolean zero = false;
+
+	IntSet(long expected) {
+	    int capacity = capacity(expected);
+	    table = new int[capacity];
+	    shift = 64 - Integer.numberOfTrailingZeros(capacity);
+	}
+
+	/**
+	 * @return true if the key was not in the set yet.
+	 */
+	boolean add(int key) {
+	    if (key == 0) {
+		boolean added = zero == false;
+		zero = true;
+		return added;
+	    }
+	    int mask = table.length - 1;
+	    int i = (int) ((key * PHI) >>> shift);
+	    for (int k; (k = table[i]) != 0; i = (i + 1) & mask)
+		if (k == key)
+		    return false;
+	    table[i] = key;
+	    if (++size > threshold(table.length))
+		grow();
+	    return true;
+	}
+
+	void grow() {
+	    int[] old = table;
+	    table = new int[grown(old.length)];
+	    shift--;
+	    int mask = table.length - 1;
+	    for (int key : old) {
+		if (key != 0) {
+		    int i = (int) ((key * PHI) >>> shift);
+		    while (table[i] != 0)
+			i = (i + 1) & mask;
+		    table[i] = key;
+		}
+	    }
+	}
+    }
+
+    /**
+     * The <code>IntSet</code> of longs.
+     */
+    static class LongSet {
+	long[] table;
+	int shift;
+	int size = 0;
+	boolean zero = false;
+
+	LongSet(long expected) {
+	    int capacity = capacity(expected);
+	    table = new long[capacity];
+	    shift = 64 - Integer.numberOfTrailingZeros(capacity);
+	}
+
+	boolean add(long key) {
+	    if (key == 0) {
+		boolean added = zero == false;
+		zero = true;
+		return added;
+	    }
+	    int mask = table.length - 1;
+	    int i = (int) ((key * PHI) >>> shift);
+	    for (long k; (k = table[i]) != 0; i = (i + 1) & mask)
+		if (k == key)
+		    return false;
+	    table[i] = key;
+	    if (++size > threshold(table.length))
+		grow();
+	    return true;
+	}
+
+	void grow() {
+	    long[] old = table;
+	    table = new long[grown(old.length)];
+	    shift--;
+	    int mask = table.length - 1;
+	    for (long key : old) {
+		if (key != 0) {
+		    int i = (int) ((key * PHI) >>> shift);
+		    while (table[i] != 0)
+			i = (i + 1) & mask;
+		    table[i] = key;
+		}
+	    }
+	}
+    }
+
+    /**
+     * The golden ratio in 64 bits, which spreads the keys over the high bits.
+     */
+    final static long PHI = 0x9E3779B97F4A7C15L;
+    final static int MAX = 1 << 30;
+
+    /**
+     * @return the table length for the expected number of keys.
+     */
+    static int capacity(long expected) {
+	long capacity = 16;
+	while (capacity < MAX && threshold((int) capacity) < expected)
+	    capacity <<= 1;
+	return (int) capacity;
+    }
+
+    /**
+     * @return the most keys a table of the given length holds, three quarters
+     * full.
+     */
+    static int threshold(int length) {
+	return length == MAX ? MAX - 1 : length - (length >>> 2);
+    }
+
+    static int grown(int length) {
+	if (length == MAX)
+	    throw new IllegalStateException("distinct: more than " + (MAX - 1)
+		    + " keys");
+	return length << 1;
+    }
+
+    /**
+     * The keys an iterator of <code>distinct</code> has returned.
+     */
+    interface Keys {
+	/**
+	 * @return true if the key is new, adding it.
+	 */
+	boolean add(Object key);
+    }
+
+    /**
+     * The exact <code>Keys</code>: int and long keys in sets of primitives, any
+     * other in a <code>HashSet</code>. An <code>Integer</code> and a
+     * <code>Long</code> are different keys, as they are not equal.
+     */
+    static class Seen implements Keys {
+	final long expected;
+	IntSet ints;
+	LongSet longs;
+	HashSet<Object> objects;
+
+	Seen(long expected) {
+	    this.expected = expected;
+	}
+
+	public boolean add(Object key) {
+	    if (key instanceof Integer) {
+		if (ints == null)
+		    ints = new IntSet(expected);
+		return ints.add((Integer) key);
+	    }
+	    if (key instanceof Long) {
+		if (longs == null)
+		    longs = new LongSet(expected);
+		return longs.add((Long) key);
+	    }
+	    if (objects == null)
+		objects = new HashSet<Object>();
+	    return objects.add(key);
+	}
+    }
+
+    /**
+     * A Bloom filter of m bits and k hashes, sized for the expected number of
+     * keys at the given false positive rate. The k bit positions are derived
+     * from two hashes of the key. Int and long keys are hashed from their value,
+     * any other from its <code>hashCode</code>, so keys with equal hash codes are
+     * always taken for each other.
+     */
+    static class Bloom implements Keys {
+	final long[] bits;
+	final long m;
+	final int k;
+
+	Bloom(long expected, double rate) {
+	    double ln2 = Math.log(2);
+	    long m = (long) Math.ceil(-expected * Math.log(rate) / (ln2 * ln2));
+	    this.m = Math.min(Math.max(m, 64), 64L * Integer.MAX_VALUE);
+	    this.k = (int) Math.max(1,
+		    Math.min(30, Math.round((double) this.m / expected * ln2)));
+	    this.bits = new long[(int) ((this.m + 63) >>> 6)];
+	}
+
+	/**
+	 * @return true if the key is certainly new, setting its bits.
+	 */
+	public boolean add(Object key) {
+	    long hash = key instanceof Integer || key instanceof Long ? ((Number) key)
+		    .longValue() : key != null ? key.hashCode() : 0;
+	    long h1 = mix(hash);
+	    long h2 = mix(h1) | 1;
+	    boolean added = false;
+	    for (int i = 0; i < k; i++) {
+		long bit = Math.floorMod(h1 + i * h2, m);
+		int word = (int) (bit >>> 6);
+		long mask = 1L << bit;
+		if ((bits[word] & mask) == 0) {
+		    bits[word] |= mask;
+		    added = true;
+		}
+	    }
+	    return added;
+	}
+
+	/**
+	 * The finalizer of SplitMix64.
+	 */
+	static long mix(long z) {
+	    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+	    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+	    return z ^ (z >>> 31);
+	}
+    }
+
+    /**
+     * @return the elements of the iterable whose key, the element itself if key
+     * is null, has not come before. With a rate above 0, every iterator checks
+     * the keys against a Bloom filter for expected keys at that false positive
+     * rate, otherwise against a <code>Seen</code> of its own.
+     */
+    static Iterable<Object> distinct(final Lambda key,
+	    final Iterable<?> iterable, final long expected, final double rate) {
+	return Iteration.buildObjectIterable(new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		return new BatchIterator<Object>() {
+		    final Iterator<?> iterator = iterable != null ? iterable
+			    .iterator() : Iteration.Null;
+		    final Lambda1 keys = key != null ? Iteration.lambda1(key)
+			    : null;
+		    final Keys set = rate > 0 ? new Bloom(expected, rate)
+			    : new Seen(expected(iterable));
+		    Object next;
+		    boolean ready = false;
+
+		    public boolean hasNext() {
+			while (ready == false && iterator.hasNext()) {
+			    Object obj = iterator.next();
+			    if (set.add(keys != null ? keys.process(obj) : obj)) {
+				next = obj;
+				ready = true;
+			    }
+			}
+			return ready;
+		    }
+
+		    public Object next() {
+			if (hasNext() == false)
+			    throw new NoSuchElementException();
+			ready = false;
+			Object obj = next;
+			next = null;
+			return obj;
+		    }
+
+		    public void close() {
+			Iteration.close(iterator);
+		    }
+
+		    public void remove() {
+		    }
+		};
+	    }
+	}, Size.atMost(iterable));
+    }
+
+    /**
+     * @return the expected number of keys of the iterable, for a first table.
+     */
+    static long expected(Iterable<?> iterable) {
+	return Math.min(Iteration.sizeBound(iterable), Columns.INITIAL);
+    }
+
+    static IntIterable distinct(final IntIterable iterable) {
+	return Iteration.buildIntIterable(new IntIteratorMaker() {
+	    public PrimitiveIterator.OfInt iterator() {
+		return new IntBatchIterator() {
+		    final PrimitiveIterator.OfInt iterator = iterable != null ? iterable
+			    .iterator() : Iteration.NullInt;
+		    final IntSet set = new IntSet(expected(iterable));
+		    int next;
+		    boolean ready = false;
+
+		    public boolean hasNext() {
+			while (ready == false && iterator.hasNext()) {
+			    next = iterator.nextInt();
+			    ready = set.add(next);
+			}
+			return ready;
+		    }
+
+		    public int nextInt() {
+			if (hasNext() == false)
+			    throw new NoSuchElementException();
+			ready = false;
+			return next;
+		    }
+
+		    public void close() {
+			Iteration.close(iterator);
+		    }
+
+		    public void remove() {
+		    }
+		};
+	    }
+	}, Size.atMost(iterable));
+    }
+
+    static LongIterable distinct(final LongIterable iterable) {
+	return Iteration.buildLongIterable(new LongIteratorMaker() {
+	    public PrimitiveIterator.OfLong iterator() {
+		return new LongBatchIterator() {
+		    final PrimitiveIterator.OfLong iterator = iterable != null ? iterable
+			    .iterator() : Spliterators.iterator(Spliterators
+			    .emptyLongSpliterator());
+		    final LongSet set = new LongSet(expected(iterable));
+		    long next;
+		    boolean ready = false;
+
+		    public boolean hasNext() {
+			while (ready == false && iterator.hasNext()) {
+			    next = iterator.nextLong();
+			    ready = set.add(next);
+			}
+			return ready;
+		    }
+
+		    public long nextLong() {
+			if (hasNext() == false)
+			    throw new NoSuchElementException();
+			ready = false;
+			return next;
+		    }
+
+		    public void close() {
+			Iteration.close(iterator);
+		    }
+
+		    public void remove() {
+		    }
+		};
+	    }
+	}, Size.atMost(iterable));
+    }
+
+    /**
+     * @return the elements of the iterable whose key differs from the key of the
+     * element before it.
+     */
+    static Iterable<Object> justSeen(final Lambda key,
+	    final Iterable<?> iterable) {
+	return Iteration.buildObjectIterable(new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		return new BatchIterator<Object>() {
+		    final Iterator<?> iterator = iterable != null ? iterable
+			    .iterator() : Iteration.Null;
+		    final Lambda1 keys = key != null ? Iteration.lambda1(key)
+			    : null;
+		    boolean first = true;
+		    Object last;
+		    Object next;
+		    boolean ready = false;
+
+		    public boolean hasNext() {
+			while (ready == false && iterator.hasNext()) {
+			    Object obj = iterator.next();
+			    Object k = keys != null ? keys.process(obj) : obj;
+			    if (first || (k == null ? last != null : k
+				    .equals(last) == false)) {
+				first = false;
+				last = k;
+				next = obj;
+				ready = true;
+			    }
+			}
+			return ready;
+		    }
+
+		    public Object next() {
+			if (hasNext() == false)
+			    throw new NoSuchElementException();
+			ready = false;
+			Object obj = next;
+			next = null;
+			return obj;
+		    }
+
+		    public void close() {
+			Iteration.close(iterator);
+		    }
+
+		    public void remove() {
+		    }
+		};
+	    }
+	}, Size.atMost(iterable));
+    }
+}
@@ -0,0 +1,406 @@
+package com.syntazo.coffeegrains;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import com.syntazo.coffeegrains.Iteration.BatchIterator;
+import com.syntazo.coffeegrains.Iteration.Lambda;
+import com.syntazo.coffeegrains.Iteration.Lambda1;
+import com.syntazo.coffeegrains.Iteration.Lambda2;
+import com.syntazo.coffeegrains.Iteration.LambdaN;
+
+/**
+ * Opt-in counters for the stages of a pipeline built from the combinators of
+ * <code>Iteration</code>. While enabled, every iterator handed out by
+ * <code>map</code>, <code>zip</code>, <code>filter</code>, <code>takewhile</code>,
+ * <code>dropwhile</code> and <code>chain</code> counts the elements it reads from its
+ * sources and the ones it returns, times the calls into its lambda, and once
+ * exhausted or closed records its lifetime and commits a <code>Stage</code>
+ * event to JDK Flight Recorder. The counters are summed per stage, a stage
+ * being the combinator and the class of its lambda, and read with
+ * <code>snapshot()</code>.
+ *
+ * Disabled, which is the default, the combinators check the flag once per
+ * <code>iterator()</code> call and hand out their plain iterators. Over indexed
+ * sources <code>map</code> and <code>zip</code> still return an
+ * <code>IndexedIterable</code>, whose iterators, made while enabled, read the
+ * sources' iterators and are counted. Reading it by position, through
+ * <code>get</code> or its spliterator, goes around the counters.
+ * <pre>
+ * -----------------------------------------------------
+ * Instrumentation.enable();
+ * reduce(plus, filter(even, map(square, source)), 0);
+ * for (Stats stats : Instrumentation.snapshot())
+ *     System.out.println(stats);
+ * .....................................................
+ * filter(Main$2): iterators 1/1, closed 0, in 1000, out 500, calls 1000, lambda 41us, lifetime 380us
+ * map(Main$1): iterators 1/1, closed 0, in 1000, out 1000, calls 1000, lambda 52us, lifetime 395us
+ * -----------------------------------------------------
+ * </pre>
+ */
+public class Instrumentation {
+    static volatile boolean enabled = false;
+    static final Map<String, Counters> counters = new ConcurrentHashMap<String, Counters>();
+
+    public static void enable() {
+	enabled = true;
+    }
+
+    public static void disable() {
+	enabled = false;
+    }
+
+    public static boolean isEnabled() {
+	return enabled;
+    }
+
+    /**
+     * Forgets every counter gathered so far.
+     */
+    public static void reset() {
+	counters.clear();
+    }
+
+    /**
+     * @return the counters of every stage seen since the last <code>reset()</code>,
+     * sorted by name. Iterators still running are counted up to their last element.
+     */
+    public static List<Stats> snapshot() {
+	List<Stats> snapshot = new ArrayList<Stats>();
+	for (Map.Entry<String, Counters> entry : counters.entrySet())
+	    snapshot.add(entry.getValue().stats(entry.getKey()));
+	Collections.sort(snapshot, new Comparator<Stats>() {
+	    public int compare(Stats a, Stats b) {
+		return a.name.compareTo(b.name);
+	    }
+	});
+	return snapshot;
+    }
+
+    /**
+     * The counters of one stage at the time of a <code>snapshot()</code>.
+     */
+    public static class Stats {
+	public final String name;
+	/**
+	 * The iterators created, how many of them ran to the end, and how many
+	 * were closed before it.
+	 */
+	public final long iterators, exhausted, closed;
+	/** The elements read from the sources, and the ones returned. */
+	public final long in, out;
+	/** The calls into the lambda, and the nanoseconds spent in them. */
+	public final long calls, lambdaNanos;
+	/**
+	 * The nanoseconds from creation to exhaustion or close, summed over the
+	 * iterators.
+	 */
+	public final long lifetimeNanos;
+
+	Stats(String name, long iterators, long exhausted, long closed, long in,
+		long out, long calls, long lambdaNanos, long lifetimeNanos) {
+	    this.name = name;
+	    this.iterators = iterators;
+	    this.exhausted = exhausted;
+	    this.closed = closed;
+	    this.in = in;
+	    this.out = out;
+	    this.calls = calls;
+	    this.lambdaNanos = lambdaNanos;
+	    this.lifetimeNanos = lifetimeNanos;
+	}
+
+	@Override
+	public String toString() {
+	    return name + ": iterators " + exhausted + "/" + iterators
+		    + ", closed " + closed + ", in " + in + ", out " + out + ", calls " + calls + ", lambda "
+		    + lambdaNanos / 1000 + "us, lifetime " + lifetimeNanos / 1000
+		    + "us";
+	}
+    }
+
+    static class Counters {
+	final LongAdder iterators = new LongAdder();
+	final LongAdder exhausted = new LongAdder();
+	final LongAdder closed = new LongAdder();
+	final LongAdder in = new LongAdder();
+	final LongAdder out = new LongAdder();
+	final LongAdder calls = new LongAdder();
+	final LongAdder lambdaNanos = new LongAdder();
+	final LongAdder lifetimeNanos = new LongAdder();
+
+	Stats stats(String name) {
+	    return new Stats(name, iterators.sum(), exhausted.sum(),
+		    closed.sum(), in.sum(), out.sum(), calls.sum(),
+		    lambdaNanos.sum(), lifetimeNanos.sum());
+	}
+    }
+
+    /**
+     * The Flight Recorder event committed when an instrumented iterator is
+     * exhausted or closed, its duration is the lifetime of the iterator.
+     */
+    @Name("com.syntazo.coffeegrains.Stage")
+    @Label("Iteration Stage")
+    @Description("An iterator of an Iteration combinator, from creation to exhaustion or close")
+    @Category("CoffeeGrains")
+    @StackTrace(false)
+    static class StageEvent extends Event {
+	@Label("Stage")
+	String stage;
+
+	@Label("Elements In")
+	long in;
+
+	@Label("Elements Out")
+	long out;
+
+	@Label("Lambda Calls")
+	long calls;
+
+	@Label("Lambda Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long lambdaTime;
+
+	@Label("Closed Early")
+	boolean closed;
+    }
+
+    /**
+     * The counters of one instrumented iterator.
+     */
+    static class Stage {
+	final String name;
+	final Counters shared;
+	final StageEvent event = new StageEvent();
+	final long start = System.nanoTime();
+	long in, out, calls, lambdaNanos;
+	boolean ended = false;
+
+	Stage(String name, Counters shared) {
+	    this.name = name;
+	    this.shared = shared;
+	    shared.iterators.increment();
+	    event.begin();
+	}
+
+	void read(int n) {
+	    in += n;
+	    shared.in.add(n);
+	}
+
+	void returned(int n) {
+	    out += n;
+	    shared.out.add(n);
+	}
+
+	void timed(long nanos) {
+	    calls++;
+	    lambdaNanos += nanos;
+	    shared.calls.increment();
+	    shared.lambdaNanos.add(nanos);
+	}
+
+	void exhausted() {
+	    end(false);
+	}
+
+	void closed() {
+	    end(true);
+	}
+
+	/**
+	 * Records the lifetime of the iterator and commits its event, once.
+	 */
+	void end(boolean closed) {
+	    if (ended)
+		return;
+	    ended = true;
+	    (closed ? shared.closed : shared.exhausted).increment();
+	    shared.lifetimeNanos.add(System.nanoTime() - start);
+	    event.end();
+	    if (event.shouldCommit()) {
+		event.stage = name;
+		event.closed = closed;
+		event.in = in;
+		event.out = out;
+		event.calls = calls;
+		event.lambdaTime = lambdaNanos;
+		event.commit();
+	    }
+	}
+    }
+
+    /**
+     * @return the counters of a new iterator of the given combinator, or null when
+     * disabled.
+     */
+    static Stage open(String combinator, Lambda lambda) {
+	if (enabled == false)
+	    return null;
+	String name = lambda != null ? combinator + "("
+		+ lambda.getClass().getName() + ")" : combinator;
+	Counters shared = counters.get(name);
+	if (shared == null) {
+	    counters.putIfAbsent(name, new Counters());
+	    shared = counters.get(name);
+	}
+	return new Stage(name, shared);
+    }
+
+    /**
+     * @return the source iterator, counting what is read from it into stage.
+     */
+    static Iterator<?> in(final Stage stage, final Iterator<?> iterator) {
+	if (stage == null)
+	    return iterator;
+	return new BatchIterator<Object>() {
+	    public boolean hasNext() {
+		return iterator.hasNext();
+	    }
+
+	    public Object next() {
+		Object obj = iterator.next();
+		stage.read(1);
+		return obj;
+	    }
+
+	    public int nextBatch(Object[] buffer, int max) {
+		int n = Iteration.nextBatch(iterator, buffer, max);
+		stage.read(n);
+		return n;
+	    }
+
+	    public void remove() {
+		iterator.remove();
+	    }
+
+	    public void close() {
+		Iteration.close(iterator);
+	    }
+	};
+    }
+
+    static Iterator<?>[] in(Stage stage, Iterator<?>[] iterators) {
+	if (stage == null)
+	    return iterators;
+	Iterator<?>[] counted = new Iterator<?>[iterators.length];
+	for (int i = 0; i < iterators.length; i++)
+	    counted[i] = in(stage, iterators[i]);
+	return counted;
+    }
+
+    /**
+     * @return the iterator of a stage, counting what it returns into stage and
+     * ending the stage once it is exhausted or closed.
+     */
+    static Iterator<Object> out(final Stage stage,
+	    final Iterator<Object> iterator) {
+	if (stage == null)
+	    return iterator;
+	return new BatchIterator<Object>() {
+	    public boolean hasNext() {
+		if (iterator.hasNext())
+		    return true;
+		stage.exhausted();
+		return false;
+	    }
+
+	    public Object next() {
+		Object obj = iterator.next();
+		stage.returned(1);
+		return obj;
+	    }
+
+	    public int nextBatch(Object[] buffer, int max) {
+		int n = Iteration.nextBatch(iterator, buffer, max);
+		if (n == 0 && max > 0)
+		    stage.exhausted();
+		stage.returned(n);
+		return n;
+	    }
+
+	    public void remove() {
+		iterator.remove();
+	    }
+
+	    public void close() {
+		stage.closed();
+		Iteration.close(iterator);
+	    }
+	};
+    }
+
+    static Lambda1 time(final Stage stage, final Lambda1 lambda) {
+	if (stage == null)
+	    return lambda;
+	return new Lambda1() {
+	    public Object process(Object arg) {
+		long start = System.nanoTime();
+		try {
+		    return lambda.process(arg);
+		} finally {
+		    stage.timed(System.nanoTime() - start);
+		}
+	    }
+	};
+    }
+
+    static Lambda2 time(final Stage stage, final Lambda2 lambda) {
+	if (stage == null)
+	    return lambda;
+	return new Lambda2() {
+	    public Object process(Object arg1, Object arg2) {
+		long start = System.nanoTime();
+		try {
+		    return lambda.process(arg1, arg2);
+		} finally {
+		    stage.timed(System.nanoTime() - start);
+		}
+	    }
+	};
+    }
+
+    /**
+     * Times a lambda of any arity, keeping it a <code>LambdaN</code> if it was one.
+     */
+    static Lambda time(final Stage stage, final Lambda lambda) {
+	if (stage == null)
+	    return lambda;
+	if (lambda instanceof LambdaN)
+	    return new LambdaN() {
+		public Object process(Object... args) {
+		    long start = System.nanoTime();
+		    try {
+			return lambda.process(args);
+		    } finally {
+			stage.timed(System.nanoTime() - start);
+		    }
+		}
+	    };
+	return new Lambda() {
+	    public Object process(Object... args) {
+		long start = System.nanoTime();
+		try {
+		    return lambda.process(args);
+		} finally {
+		    stage.timed(System.nanoTime() - start);
+		}
+	    }
+	};
+    }
+}
@@ -1,1037 +1,4117 @@
-package com.syntazo.coffeegrains;
-
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.NoSuchElementException;
-
-import org.python.core.PyFile;
-
-public class Iteration {
-	   public final static Iterator<Object> Null = new Iterator<Object>() {
-			public boolean hasNext() {
-			    return false;
-			}
-
-			public Object next() {
-			    return null;
-			}
-
-			public void remove() {
-			}
-		    };
-
-    public static abstract interface Lambda {
-	public Object process(final Object... args);
-    }
-
-    public static class Tuple {
-	public Object[] values;
-
-	public Tuple(Object... args) {
-	    values = args;
-	}
-
-	@Override
-	public String toString() {
-	    return "(" + str(values) + ")";
-	}
-
-    }
-    public static class Enum {
-    	final public int index;
-    	final public Object value;
-
-    	public Enum(int index, Object value) {
-    	    this.index = index;
-    	    this.value = value;
-    	}
-
-    	@Override
-    	public String toString() {
-    	    return "(" + index + "," + value + ")";
-    	}
-
-        }
-    public static Object[] tuple(final Object... args) {
-	return args;
-    }
-
-    public static interface IteratorMaker<T> {
-	public Iterator<T> iterator();
-    }
-
-    public static Iterable<Object> buildObjectIterable(
-	    final IteratorMaker<Object> iteratorMaker) {
-	return new Iterable<Object>() {
-	    public Iterator<Object> iterator() {
-		return iteratorMaker.iterator();
-	    }
-
-	    @Override
-	    public String toString() {
-		return "(" + str(this) + ")";
-	    }
-	};
-    }
-
-    public static Iterable<Integer> buildIntegerIterable(
-	    final IteratorMaker<Integer> iteratorMaker) {
-	return new Iterable<Integer>() {
-	    public Iterator<Integer> iterator() {
-		return iteratorMaker.iterator();
-	    }
-
-	    @Override
-	    public String toString() {
-		return "(" + str(this) + ")";
-	    }
-	};
-    }
-    /**
-     * Returns an <code>Iterable</code> object from the <code>varargs</code> or a given array.
-     * Should an array be passed, it will be used as the underlying.
-     *
-     * @param  elements a vararg of objects or types.
-     * @return an iterable.
-     */
-    public static Iterable iterable(final Object... elements) {
-	return buildObjectIterable(new IteratorMaker<Object>() {
-	    public Iterator<Object> iterator() {
-		return new Iterator<Object>() {
-		    int index = 0;
-
-		    public boolean hasNext() {
-			return index < elements.length;
-		    }
-
-		    public Object next() {
-			return elements[index++];
-		    }
-
-		    public void remove() {
-		    }
-		};
-	    }
-	});
-    }
-
-    /**
-     * Returns an <code>Iterable</code> of Integers in the given the range from (0..stop] where the step is 1.
-     * There is no underlying.
-     *
-     * @param  stop, an integer.
-     * @return an <code>Iterable</code> of Integers.
-     * 
-     * @see range(start, stop, step)
-     */
-    public static Iterable<Integer> range(final int stop) {
-		return range(0, stop);
-    }
-    /**
-     * Returns an <code>Iterable</code> of Integers in the given the range from (start..stop] where the step is 1.
-     * There is no underlying.
-     *
-     * @param  start, an integer.
-     * @param  stop, an integer.
-     * @return an <code>Iterable</code> of Integers.
-     * 
-     * @see range(start, stop, step)
-     */
-    public static Iterable<Integer> range(final int start, final int stop) {
-		return range(start, stop, 1);
-    }
-    /**
-     * Returns an <code>Iterable</code> of Integers in the given the range from (start..stop] where the step is given.
-     * There is no underlying.
-     *
-     * @param  start, an integer.
-     * @param  stop, an integer.
-     * @return an <code>Iterable</code> of Integers.
-     * 
-     * @see range(start, stop, step)
-     */
-    public static Iterable<Integer> range(final int start, final int stop,
-	    final int step) {
-	return buildIntegerIterable(new IteratorMaker<Integer>() {
-	    public Iterator<Integer> iterator() {
-		return new Iterator<Integer>() {
-		    int index = start;
-
-		    public boolean hasNext() {
-			return index < stop;
-		    }
-
-		    public Integer next() {
-			int i = index;
-			index += step;
-			return i;
-		    }
-
-		    public void remove() {
-		    }
-		};
-	    }
-	});
-    }
-
- 
-    /**
-     * Returns an <code>Iterable</code> of <code>Enums</code> given an Iterable.
-
-     *
-     * @param  iterable, an <code>Iterable</code>
-     * @return an <code>Iterable</code> of <code>Enums</code>.
-     * 
-     * @see <code>Enums</code>.
-     */
-
-    public static Iterable<Enum> enumerate(final Iterable<?> iterable) {
-	return new Iterable<Enum>() {
-	    public Iterator<Enum> iterator() {
-		return new Iterator<Enum>() {
-		    int index = 0;
-		    Iterator<?> iterator = iterable != null ? iterable
-			    .iterator() : Null;
-
-		    public boolean hasNext() {
-			return iterator.hasNext();
-		    }
-
-		    public Enum next() {
-			return new Enum(index++, iterator.next());
-		    }
-
-		    public void remove() {
-		    }
-		};
-	    }
-
-	    @Override
-	    public String toString() {
-		return "(" + str(this) + ")";
-	    }
-	};
-    }
-
-    
-    /**
-     * Makes an iterable that returns selected elements from the underlying iterable. 
-     * If stop is -1, then iteration continues until the iterator is exhausted, 
-     * if at all; otherwise, it stops at the specified position. 
-     * Step = 1.
-     *
-     * @param  iterable, an <code>Iterable</code>
-     * @param  stop.
-     * @return an <code>Iterable</code>.
-     * 
-     * @see <code>slice</code>.
-     */
-    public static Iterable<Object> slice(Iterable<?> iterable, int stop) {
-	return slice(iterable, 0, stop);
-    }
-    /**
-     * Makes an iterable that returns selected elements from the underlying iterable. 
-     * If start is non-zero, then elements from the iterable are skipped until start 
-     * is reached. Afterward, elements are returned consecutively unless step is set 
-     * higher than one which results in items being skipped. 
-     * If stop is -1, then iteration continues until the iterator is exhausted, 
-     * if at all; otherwise, it stops at the specified position. 
-     *
-     * @param  iterable, an <code>Iterable</code>
-     * @param  start.
-     * @param  stop.
-     * @return an <code>Iterable</code>.
-     * 
-     * @see <code>slice</code>.
-     */
-    public static Iterable<Object> slice(Iterable<?> iterable, int start,
-	    int stop) {
-	return slice(iterable, start, stop, 1);
-    }
-    /**
-     * Makes an iterable that returns selected elements from the underlying iterable. 
-     * If start is non-zero, then elements from the iterable are skipped until start 
-     * is reached. Afterward, elements are returned consecutively unless step is set 
-     * higher than one which results in items being skipped.     *
-     * @param  iterable, an <code>Iterable</code>
-     * @param  start.
-     * @param  stop.
-     * @param  step.
-     * @return an <code>Iterable</code>.
-     * 
-     * @see <code>slice</code>.
-     */
-    public static Iterable<Object> slice(final Iterable<?> iterable,
-	    final int start, final int stop, final int step) {
-	return buildObjectIterable(new IteratorMaker<Object>() {
-	    public Iterator<Object> iterator() {
-		return new Iterator<Object>() {
-		    Iterator<Enum> iterator = enumerate(iterable).iterator();
-		    Iterator<Integer> range = range(start, stop, step)
-			    .iterator();
-
-		    public boolean hasNext() {
-			return range.hasNext() && iterator.hasNext();
-		    }
-
-		    public Object next() {
-			int i = range.next();
-			do {
-			    Enum tuple = iterator.next();
-			    if (i == tuple.index)
-				return tuple.value;
-			} while (iterator.hasNext());
-			throw new NoSuchElementException();
-		    }
-
-		    public void remove() {
-		    }
-		};
-	    }
-	});
-    }
-
- 
-    
-     	/**
-         * return an Iterable whose iterator will with every call to next apply lambda  whose arguments will be an item from each given iterable.
-         * Map will stops when the shortest iterable is exhausted. 
-         * @param  lambda, an <code>Lamda</code>
-         * @param  iterable, an <code>Iterable</code>
-         * @return an <code>Iterable</code>.
-         * <pre>
-         * -----------------------------------------------------
-         * Collection<Object> a = toCollection(new ArrayList<Object>(), 1, 2, 3, 4, 5, 6, 3, 3, 10);
-         * Iterable<Integer> b = range(2, 10, 3);
-         * System.out.println("a = " + str(a));
-         * System.out.println("b = " + b);
-         * 
-         * System.out.println("testing map(lambda x: x*10, b): "
-         * + map(new Lambda() {
-         *  	public Object process(Object... args) {
-         *  		return ((Integer) args[0]) * 10;
-         *  	}
-         *  }, b));
-         *  
-         *  System.out.println("testing map(lambda x,y: x*10+y, a, b): "
-         *  + map(new Lambda() {
-         *  	public Object process(Object... args) {
-         *			int x = (Integer) args[0];
-         *			int y = (Integer) args[1];
-         *			return x+y;
-         *  	}
-         *  }, a, b));
-         * .....................................................
-         * a = 1,2,3,4,5,6,3,3,10
-         * b = (2,5,8)
-         * testing map(lambda x: x*10, b): (20,50,80)
-         * testing map(lambda x,y: x*10+y, a, b): (12,25,38)
-         * -----------------------------------------------------
-         * <pre>
-         */
-    public static Iterable<Object> map(final Lambda lambda,
-	    final Iterable<?>... iterables) {
-	final Iterator<?>[] iterators = new Iterator[iterables.length];
-	for (int i = 0; i < iterables.length; i++)
-	    iterators[i] = iterables[i] != null ? iterables[i].iterator()
-		    : Null;
-
-	return buildObjectIterable(new IteratorMaker<Object>() {
-	    public Iterator<Object> iterator() {
-		return new Iterator<Object>() {
-		    public boolean hasNext() {
-			for (Iterator<?> iterator : iterators) {
-			    if (iterator.hasNext() == false)
-				return false;
-			}
-			return true;
-		    }
-
-		    public Object next() {
-			return lambda.process(map(iterators, new Lambda() {
-			    public Object process(Object... args) {
-				return ((Iterator<?>) args[0]).next();
-			    }
-			}));
-
-		    }
-
-		    public void remove() {
-		    }
-
-		};
-	    }
-	});
-
-    }
-
-    
- 	/**
-     * This function returns a Iterable  of Iterable, where the i-th Iterable 
-     * contains the i-th element from each of the argument iterables.
-     * The returned Iterable is truncated in length to the length of the shortest 
-     * argument Iterable.
-     * 
-     * @param  iterables, an number of <code>Iterable</code>s
-     * @return an <code>Iterable</code>.
-     * 
-     * @see <code>map</code>.
-     */
-    public static Iterable<Object> zip(final Iterable<?>... iterables) {
-	final Iterator<?>[] iterators = new Iterator[iterables.length];
-	for (int i = 0; i < iterables.length; i++)
-	    iterators[i] = iterables[i] != null ? iterables[i].iterator()
-		    : Null;
-
-	return buildObjectIterable(new IteratorMaker<Object>() {
-	    public Iterator<Object> iterator() {
-		return new Iterator<Object>() {
-		    public boolean hasNext() {
-			for (Iterator<?> iterator : iterators) {
-			    if (iterator.hasNext() == false)
-				return false;
-			}
-			return true;
-		    }
-
-		    public Object next() {
-			return iterable(map(iterators, new Lambda() {
-			    public Object process(Object... args) {
-				return ((Iterator<?>) args[0]).next();
-			    }
-			}));
-
-		    }
-
-		    public void remove() {
-		    }
-
-		};
-	    }
-	});
-
-    }
-
-    
- 	/**
-     * This function returns a Iterable  from those elements of the given iterable for which 
-     * predicate returns not null. 
-     * 
-     * @param  predicate, a Lambda
-     * @param  iterable
-     * @return an <code>Iterable</code>.
-     * 
-     * @see  #map(com.syntazo.coffeegrains.Iteration.Lambda, Iterable...)
-     */
- 
-    public static Iterable<Object> filter(final Lambda predicate,
-	    final Iterable<?> iterable) {
-	return buildObjectIterable(new IteratorMaker<Object>() {
-	    public Iterator<Object> iterator() {
-		return new Iterator<Object>() {
-		    Iterator<?> iterator = iterable != null ? iterable
-			    .iterator() : Null;
-		    Object nextObj = null;
-
-		    public boolean hasNext() {
-			nextObj = getNext(nextObj);
-			return nextObj != null;
-		    }
-
-		    public Object getNext(Object obj) {
-			while (obj == null && iterator.hasNext()) {
-			    obj = predicate.process(iterator.next());
-			}
-			return obj;
-		    }
-
-		    public void remove() {
-			iterator.remove();
-		    }
-
-		    public Object next() {
-			Object obj = getNext(nextObj);
-			nextObj = null;
-			return obj;
-		    }
-		};
-	    }
-	});
-    }
-
-    
-    
- 	/**
-     * This function makes a Iterable  whose iterator whose iterator  
-     * returns elements from the given iterable as 
-     * long as the predicate is true. 
-     * 
-     * @param  predicate, a Lambda
-     * @param  iterable
-     * @return an <code>Iterable</code>.
-     * 
-     * @see #filter(com.syntazo.coffeegrains.Iteration.Lambda, Iterable)
-     * @see #dropwhile(com.syntazo.coffeegrains.Iteration.Lambda, Iterable)
-     */
-    
-    public static Iterable<Object> takewhile(final Lambda lambda,
-	    final Iterable<?> iterable) {
-	return buildObjectIterable(new IteratorMaker<Object>() {
-	    public Iterator<Object> iterator() {
-		return new Iterator<Object>() {
-		    Iterator<?> iterator = iterable != null ? iterable
-			    .iterator() : Null;
-		    Object nextObj = null;
-
-		    public boolean hasNext() {
-			nextObj = getNext(nextObj);
-			return nextObj != null;
-		    }
-
-		    public Object getNext(Object obj) {
-			if (obj == null && iterator.hasNext()) {
-			    obj = lambda.process(iterator.next());
-			}
-			return obj;
-		    }
-
-		    public void remove() {
-			iterator.remove();
-		    }
-
-		    public Object next() {
-			Object obj = getNext(nextObj);
-			nextObj = null;
-			return obj;
-		    }
-		};
-	    }
-	});
-    }
- 	/**
-     * This function makes a Iterable  whose  iterator  drops elements from the 
-     * given iterable as long as the predicate is true.
-     * Afterwards it  returns every element. 
-     * 
-     * Note, the iterator does not produce any output until the predicate 
-     * is true, so it may have a lengthy start-up time
-     * 
-     * @param  predicate, a Lambda
-     * @param  iterable
-     * @return an <code>Iterable</code>.
-     * 
-     * @see <code>filter, takewhile</code>.
-     */
-    public static Iterable<Object> dropwhile(final Lambda lambda,
-	    final Iterable<?> iterable) {
-	return buildObjectIterable(new IteratorMaker<Object>() {
-	    public Iterator<Object> iterator() {
-		return new Iterator<Object>() {
-		    Iterator<?> iterator = iterable != null ? iterable
-			    .iterator() : Null;
-		    boolean dropZone = true;
-
-		    public boolean hasNext() {
-			return iterator.hasNext();
-		    }
-
-		    public void remove() {
-			iterator.remove();
-		    }
-
-		    public Object next() {
-			Object obj = iterator.next();
-			while (dropZone && iterator.hasNext()) {
-			    dropZone = (Boolean) lambda.process(obj);
-			    if (dropZone)
-				obj = iterator.next();
-			}
-			dropZone = false;
-			return obj;
-		    }
-		};
-	    }
-	});
-    }
-
-    
-    /**
-     * Makes an Iterable whoe iterator applies the lambda  function of two arguments 
-     * cumulatively to the items of the goven iterable, 
-     * from left to right, so as to reduce the iterable to a single value. 
-     * 
-     * The example the code below  calculates ((((1+2)+3)+4)+5). 
-     *  <pre>      
-     * -----------------------------------------------------
-     * 
-     * System.out.println("testing reduce(lambda x,y: x+y, a,0): "
-     * + reduce(new Lambda() {
-     * public Object process(Object... args) {
-     *	int x = (Integer) args[0];
-     *	int y = (Integer) args[1];
-     *	return x+y;
-     * }
-     * }, iterable(1,2,3,4,5), 0));
-     * 
-     * .....................................................
-     * testing reduce(lambda x,y: x+y, a,0): 15 
-     * -----------------------------------------------------
-     * </pre>
-     * 
-     * @param  predicate, a Lambda
-     * @param  iterable
-     * @param start, The initial start value.
-     * @return an <code>Iterable</code>.
-     * 
-     * @see <code>filter, takewhile</code>.
-     */
-    
-    public static Object reduce(Lambda lambda, final Iterable<Object> iterable,
-	    Object start) {
-	Object result = start;
-	for (Object obj : iterable) {
-	    result = lambda.process(result, obj);
-	}
-	return result;
-    }
-
-    /**
-     * Make an iterator that returns elements from the first iterable until it
-     * is exhausted, then proceeds to the next iterable, until all of the
-     * iterables are exhausted. Used for treating consecutive sequences as a
-     * single sequence.
-     * 
-     * @param iterables, a varialble number of iterables to chain through.
-     * @return an <code>Iterable</code>.
-     */
-    public static Iterable<Object> chain(final Iterable<?>... iterables) {
-	return buildObjectIterable(new IteratorMaker<Object>() {
-	    public Iterator<Object> iterator() {
-		return new Iterator<Object>() {
-		    int iterableIndex = 0;
-		    Iterator<?> iterator = iterables[0] != null ? iterables[0]
-			    .iterator() : Null;
-
-		    public boolean hasNext() {
-			boolean more = iterator.hasNext();
-			while (more == false
-				&& iterableIndex < iterables.length - 1) {
-			    iterator = iterables[iterableIndex++] == null ? Null
-				    : iterables[iterableIndex].iterator();
-			    more = iterator.hasNext();
-			}
-			return more;
-		    }
-
-		    public Object next() {
-			hasNext();
-			return iterator.next();
-		    }
-
-		    public void remove() {
-			iterator.remove();
-		    }
-		};
-	    }
-	});
-    }
-
-    public static Iterable<Object> iterate(final int count,
-	    final Iterable<?> iterable) {
-	return buildObjectIterable(new IteratorMaker<Object>() {
-	    public Iterator<Object> iterator() {
-		return new Iterator<Object>() {
-		    int number = 0;
-		    Iterator<?> iterator = iterable != null ? iterable
-			    .iterator() : Null;
-
-		    public boolean hasNext() {
-			return number < count && iterator.hasNext();
-		    }
-
-		    public Object next() {
-			number++;
-			return iterator.next();
-		    }
-
-		    public void remove() {
-			iterator.remove();
-		    }
-		};
-	    }
-	});
-    }
-
-    
-    /**
-     * Make an Iterable whose iterator  returns consecutive integers starting with start.
-     * 
-     * @param start.
-     * @return an <code>Iterable</code>.
-     */
-    public static Iterable<Integer> count(final int start) {
-	return buildIntegerIterable(new IteratorMaker<Integer>() {
-	    public Iterator<Integer> iterator() {
-		return new Iterator<Integer>() {
-		    int iterableIndex = start;
-
-		    public boolean hasNext() {
-			return true;
-		    }
-
-		    public Integer next() {
-			return iterableIndex++;
-		    }
-
-		    public void remove() {
-		    }
-		};
-	    }
-	});
-    }
-
-
-    /**
-     * Make an Iterable whose iterator  endlessly returning elements from the given iterable.
-     * 
-     * @param iterable.
-     * @return an <code>Iterable</code>.
-     */
-    public static Iterable<Object> cycle(final Iterable<?> iterable) {
-	return buildObjectIterable(new IteratorMaker<Object>() {
-	    public Iterator<Object> iterator() {
-		return new Iterator<Object>() {
-		    Iterator<?> iterator = iterable != null ? iterable
-			    .iterator() : Null;
-
-		    public boolean hasNext() {
-			return true;
-		    }
-
-		    public Object next() {
-			if (iterator.hasNext() == false)
-			    iterator = iterable.iterator();
-			return iterator.next();
-		    }
-
-		    public void remove() {
-			iterator.remove();
-		    }
-
-		};
-	    }
-	});
-    }
-
-    /**
-     * Make an Iterable whose iterator  endlessly returning elements from the given iterable.
-     * 
-     * @param iterable.
-     * @return an <code>Iterable</code>.
-     */
-    
-    public static Iterable<Object> repeat(final Object object) {
-	return buildObjectIterable(new IteratorMaker<Object>() {
-	    public Iterator<Object> iterator() {
-		return new Iterator<Object>() {
-		    public boolean hasNext() {
-			return true;
-		    }
-
-		    public Object next() {
-			return object;
-		    }
-
-		    public void remove() {
-		    }
-		};
-	    }
-	});
-    }
-    
-    /**
-     * Make an Iterable whose iterator returns an iterable of the given objects  repeating,  count, number of times.
-     * 
-     * @param count, the number of times to repeat.
-     * @param objects, a variable number of Objects.
-     * @return an <code>Iterable</code>.
-     */
-    public static Iterable<Object> repeat(int count, Object... objects) {
-
-	return repeat(count, iterable(objects));
-    }
-
-    public static Iterable<Object> repeat(final int count,
-	    final Iterable<?> iterable) {
-	return buildObjectIterable(new IteratorMaker<Object>() {
-	    public Iterator<Object> iterator() {
-		return new Iterator<Object>() {
-		    Iterator<?> iterator = iterable != null ? iterable
-			    .iterator() : Null;
-		    int cycleNo = 0;
-
-		    public boolean hasNext() {
-			if (iterator.hasNext() == false) {
-			    iterator = iterable.iterator();
-			    cycleNo++;
-			}
-			return cycleNo < count;
-		    }
-
-		    public Object next() {
-			return iterator.next();
-		    }
-
-		    public void remove() {
-			iterator.remove();
-		    }
-
-		};
-	    }
-	});
-    }
-
-    /**
-     * A test method that return true if the predicate evaluates true for all elements 
-     * returned by the iterable, otherwise false.
-     * 
-     * @param predicate.
-     * @param iterable.
-     * @return boolean, true if the predicate evaluates true for all elements 
-     * returned by the iterable, otherwise false.
-     */
-    
-    public static boolean all(Lambda predicate, Iterable<?> iterable) {
-	for (Object obj : iterable) {
-	    if (predicate.process(obj) == null)
-		return false;
-	}
-	return true;
-    }
-    
-    /**
-     * A test method that return true if the  predicate evaluates true for any element 
-     * returned by the iterable, otherwise false.
-     * 
-     * @param predicate.
-     * @param iterable.
-     * @return boolean, true if the predicate evaluates true for any element 
-     * returned by the iterable, otherwise false.
-     */
-    public static boolean any(Lambda lambda, Iterable<?> iterable) {
-	for (Object obj : iterable) {
-	    if (lambda.process(obj) == null)
-		return true;
-	}
-	return false;
-    }
-
-    
-    
-    private static Object[] map(Object[] array, Lambda lambda) {
-	return map(array, lambda, 0, array.length);
-    }
-
-    private static Object[] map(Object[] array, Lambda lambda, int start,
-	    int stop) {
-	Object[] result = new Object[stop - start];
-	for (int i = start; i < stop; i++)
-	    result[i] = lambda.process(array[i]);
-	return result;
-    }
-    
-    public static boolean any(Object[] array, Lambda lambda) throws Exception {
-	for (Object obj : array) {
-	    if ((Boolean) lambda.process(obj) == false)
-		return true;
-	}
-	return false;
-    }
-
-    public static String str(Iterable<?> parts) {
-	return join(parts, ",");
-    }
-
-    public static String str(Object[] parts) {
-	return join(parts, ",");
-    }
-
-    public static String join(Iterable<?> parts, String del) {
-
-    	StringBuffer result = new StringBuffer();
-    	int i = 0;
-    	for (Object part : parts) {
-    	    result.append(part);
-    	    result.append(del);
-    	    i++;
-    	}
-    	return i > 0 ? result.substring(0, result.length() - del.length())
-    		: result.toString();
-    }
-
-    public static String join(Object[] parts, String del) {
-
-	StringBuffer result = new StringBuffer();
-	int i = 0;
-	for (Object part : parts) {
-	    result.append(part);
-	    result.append(del);
-	    i++;
-	}
-	return i > 0 ? result.substring(0, result.length() - del.length())
-		: result.toString();
-    }
-
-    public static Collection<Object> toCollection(Collection<Object> container,
-	    Object... elements) {
-	for (Object obj : elements)
-	    container.add(obj);
-	return container;
-    }
-
-    public static Collection<Object> toCollection(Collection<Object> container,
-	    Iterable<?> iterable) {
-	for (Object obj : iterable)
-	    container.add(obj);
-	return container;
-    }
-
-    public static void main(String[] args) {
-
-    	(new PyFile("c:\\Extract-7.txx", "w", 4000)).write((new PyFile("c:\\Extract-7.txt", "r", 4000)).read());
-    	 	
-    	
-	Collection<Object> a = toCollection(new ArrayList<Object>(), 1, 2, 3,
-		4, 5, 6, 3, 3, 10);
-	System.out
-		.println("Collection<Object> a = toCollection(new ArrayList<Object>(), 1,2,3,4,5,6,3,3,10): "
-			+ str(a));
-	Iterable<Integer> b = range(2, 10, 3);
-	System.out.println("Iterable<Integer> b = irange(2,10,3): " + b);
-	Iterable<Object> c = iterable(1, 2, 3, 4);
-	System.out.println("Iterable c = iterable(1,2,3): " + c);
-
-	Iterable<Object> d = iterable(new int[] { 1, 2, 3, 4 });
-	System.out.println("Iterable d = iterable(new Integer []{1,2,3,4}): "
-		+ c);
-
-	System.out.println("testing ienum(b): " + enumerate(c));
-
-	Iterator forever = repeat(4).iterator();
-	System.out.println("Iterable forever = repeat(4).iterator()");
-	System.out.println("testing forever.next(), forever.next(): "
-		+ forever.next() + "," + forever.next());
-
-	System.out.println("testing repeat(3, iterable(1,2,3)): "
-		+ repeat(3, iterable(1, 2, 3)));
-
-	System.out.println("testing repeat(3, iterable(iterable(1,2,3))): "
-		+ repeat(3, iterable(iterable(1, 2, 3))));
-	System.out.println("testing map(lambda x: x*10, b): "
-		+ map(new Lambda() {
-		    public Object process(Object... args) {
-			return ((Integer) args[0]) * 10;
-		    }
-		}, b));
-
-	System.out.println("testing map(lambda x,y: x*10+y, a, b): "
-		+ map(new Lambda() {
-		    public Object process(Object... args) {
-			return ((Integer) args[0]) * 10 + ((Integer) args[1]);
-		    }
-		}, a, b));
-
-	System.out.println("testing filter(lambda x: x%2==0, a): "
-		+ filter(new Lambda() {
-		    public Object process(Object... args) {
-			return ((Integer) args[0]) % 2 == 0 ? args[0] : null;
-		    }
-		}, a));
-
-	System.out.println("testing reduce(lambda x,y: x+y, a,0): "
-		+ reduce(new Lambda() {
-		    public Object process(Object... args) {
-		    	int x = (Integer) args[0];
-				int y = (Integer) args[1];
-			return x+y;
-		    }
-		}, iterable(1,2,3,4,5), 0));
-
-	System.out.println("testing slice(" + str(a) + "\n\t, 1,10,3): "
-		+ slice(a, 1, 10, 3));
-	System.out.println("testing chain(a,b): " + chain(a, b));
-	System.out.println("testing chain(a,b,a): " + chain(a, b, a));
-
-	System.out.println("testing iterate(10, count(20)): "
-		+ iterate(10, count(20)));
-
-	System.out.println("testing iterate(10, cycle(b)): "
-		+ iterate(10, cycle(b)));
-
-	System.out.println("testing all(lambda x: x==2, " + b + ": "
-		+ all(new Lambda() {
-		    public Object process(Object... args) {
-			return (Integer) args[0] == 2;
-		    }
-		}, b));
-
-	System.out.println("testing any(lambda x: x==2, " + b + ": "
-		+ any(new Lambda() {
-		    public Object process(Object... args) {
-			return (Integer) args[0] == 2;
-		    }
-		}, b));
-
-	System.out
-		.println("testing any(lambda x: x==2, repeat(10, iterable(1)): "
-			+ any(new Lambda() {
-			    public Object process(Object... args) {
-				return (Integer) args[0] == 2;
-			    }
-			}, repeat(10, iterable(1))));
-
-	System.out
-		.println("testing all(lambda x: x==1, repeat(10, iterable(1)): "
-			+ all(new Lambda() {
-			    public Object process(Object... args) {
-				return (Integer) args[0] == 2;
-			    }
-			}, repeat(10, iterable(1))));
-
-	System.out.println("testing zip(a,b,c): " + zip(a, b, c));
-
-	System.out.println("testing takewhile(lambda x: x< 4, a): "
-		+ takewhile(new Lambda() {
-		    public Object process(Object... args) {
-			return (Integer) args[0] < 4 ? args[0] : null;
-		    }
-		}, a));
-
-	System.out.println("testing dropwhile(lambda x: x< 4, a): "
-		+ dropwhile(new Lambda() {
-		    public Object process(Object... args) {
-			return (Integer) args[0] < 4;
-		    }
-		}, a));
-
-	System.out.println("example enumerate = zip(count().iterator(), a): "
-		+ zip(count(0), a));
-
-	System.out.println("example dot product of (1,2,3,4) * (4,5,6,7): "
-		+ reduce(new Lambda() {
-		    public Object process(Object... args) {
-			return (Integer) args[0] + (Integer) args[1];
-		    }
-		}, map(new Lambda() {
-
-		    public Object process(Object... args) {
-			return (Integer) args[0] * (Integer) args[1];
-		    }
-		}, iterable(1, 2, 3, 4), iterable(4, 5, 6, 7)), 0));
-	
-	
-		
-    }
-
-}
+package com.syntazo.coffeegrains;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.DoublePredicate;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongPredicate;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class Iteration {
+	   public final static Iterator<Object> Null = new Iterator<Object>() {
+			public boolean hasNext() {
+			    return false;
+			}
+
+			public Object next() {
+			    return null;
+			}
+
+			public void remove() {
+			}
+		    };
+
+	   public final static PrimitiveIterator.OfInt NullInt = new PrimitiveIterator.OfInt() {
+			public boolean hasNext() {
+			    return false;
+			}
+
+			public int nextInt() {
+			    throw new NoSuchElementException();
+			}
+
+			public void remove() {
+			}
+		    };
+
+    public static abstract interface Lambda {
+	public Object process(final Object... args);
+    }
+
+    /**
+     * A <code>Lambda</code> of one argument. The combinators call
+     * <code>process(Object)</code> directly, so no varargs array is built per
+     * element. It is also a <code>java.util.function.Function</code>.
+     */
+    public static interface Lambda1 extends Lambda, Function<Object, Object> {
+	public Object process(Object arg);
+
+	public default Object process(final Object... args) {
+	    return process(args[0]);
+	}
+
+	public default Object apply(Object arg) {
+	    return process(arg);
+	}
+    }
+
+    /**
+     * A <code>Lambda</code> of two arguments, as used by <code>reduce</code> or a
+     * <code>map</code> over two iterables. It is also a
+     * <code>java.util.function.BiFunction</code>.
+     */
+    public static interface Lambda2 extends Lambda,
+	    BiFunction<Object, Object, Object> {
+	public Object process(Object arg1, Object arg2);
+
+	public default Object process(final Object... args) {
+	    return process(args[0], args[1]);
+	}
+
+	public default Object apply(Object arg1, Object arg2) {
+	    return process(arg1, arg2);
+	}
+    }
+
+    /**
+     * A <code>Lambda</code> that does not keep its <code>args</code> array past the
+     * call, which lets a combinator hand it the same array for every element.
+     */
+    public static interface LambdaN extends Lambda {
+    }
+
+    public static class Tuple {
+	public Object[] values;
+
+	public Tuple(Object... args) {
+	    values = args;
+	}
+
+	@Override
+	public String toString() {
+	    return "(" + str(values) + ")";
+	}
+
+    }
+    public static class Enum {
+    	final public int index;
+    	final public Object value;
+
+    	public Enum(int index, Object value) {
+    	    this.index = index;
+    	    this.value = value;
+    	}
+
+    	@Override
+    	public String toString() {
+    	    return "(" + index + "," + value + ")";
+    	}
+
+        }
+    public static Object[] tuple(final Object... args) {
+	return args;
+    }
+
+    public static interface IteratorMaker<T> {
+	public Iterator<T> iterator();
+    }
+
+    /**
+     * An <code>Iterator</code> that can also hand out its elements a batch at a
+     * time, so a consumer pays one call per batch rather than a
+     * <code>hasNext()</code> and a <code>next()</code> per element. The sources and
+     * combinators of <code>Iteration</code> make them, an iterator that is not one
+     * is still read element by element.
+     *
+     * It is also <code>AutoCloseable</code>: a consumer that stops before the end
+     * closes the iterator, and the combinators pass that on to the iterators they
+     * read from, so a source holding a thread or a file can let go of it.
+     *
+     * @see #nextBatch(Iterator, Object[], int)
+     * @see #close(Iterator)
+     */
+    public static interface BatchIterator<T> extends Iterator<T>, AutoCloseable {
+	/**
+	 * Copies up to max of the next elements into buffer, starting at 0.
+	 *
+	 * @return the number of elements copied, 0 once the iterator is exhausted.
+	 */
+	public default int nextBatch(Object[] buffer, int max) {
+	    int n = 0;
+	    while (n < max && hasNext())
+		buffer[n++] = next();
+	    return n;
+	}
+
+	/**
+	 * Stops the iterator early, by default there is nothing to release.
+	 */
+	public default void close() {
+	}
+    }
+
+    /**
+     * The int flavour of <code>BatchIterator</code>, filling an <code>int[]</code>.
+     */
+    public static interface IntBatchIterator extends PrimitiveIterator.OfInt,
+	    BatchIterator<Integer> {
+	public default int nextBatch(int[] buffer, int max) {
+	    int n = 0;
+	    while (n < max && hasNext())
+		buffer[n++] = nextInt();
+	    return n;
+	}
+    }
+
+    /**
+     * The long flavour of <code>BatchIterator</code>, filling a <code>long[]</code>.
+     */
+    public static interface LongBatchIterator extends PrimitiveIterator.OfLong,
+	    BatchIterator<Long> {
+	public default int nextBatch(long[] buffer, int max) {
+	    int n = 0;
+	    while (n < max && hasNext())
+		buffer[n++] = nextLong();
+	    return n;
+	}
+    }
+
+    /**
+     * The batch size used when <code>Iteration</code> drains an iterator itself.
+     */
+    public final static int BATCH = 1024;
+
+    /**
+     * @return BATCH, or less for an iterable known to be smaller.
+     */
+    static int batchSize(Iterable<?> iterable) {
+	return (int) Math.max(1, Math.min(BATCH, sizeBound(iterable)));
+    }
+
+    /**
+     * Reads up to max of the next elements of any iterator into buffer, natively
+     * for a <code>BatchIterator</code> and element by element otherwise.
+     *
+     * @return the number of elements read, 0 once the iterator is exhausted.
+     */
+    public static int nextBatch(Iterator<?> iterator, Object[] buffer, int max) {
+	if (iterator instanceof BatchIterator)
+	    return ((BatchIterator<?>) iterator).nextBatch(buffer, max);
+	int n = 0;
+	while (n < max && iterator.hasNext())
+	    buffer[n++] = iterator.next();
+	return n;
+    }
+
+    /**
+     * Closes an iterator that is <code>AutoCloseable</code>, as a consumer that stops
+     * early should, and does nothing for any other.
+     */
+    public static void close(Iterator<?> iterator) {
+	if (iterator instanceof AutoCloseable) {
+	    try {
+		((AutoCloseable) iterator).close();
+	    } catch (RuntimeException e) {
+		throw e;
+	    } catch (Exception e) {
+		throw new IllegalStateException(e);
+	    }
+	}
+    }
+
+    public static int nextBatch(PrimitiveIterator.OfInt iterator, int[] buffer,
+	    int max) {
+	if (iterator instanceof IntBatchIterator)
+	    return ((IntBatchIterator) iterator).nextBatch(buffer, max);
+	int n = 0;
+	while (n < max && iterator.hasNext())
+	    buffer[n++] = iterator.nextInt();
+	return n;
+    }
+
+    public static int nextBatch(PrimitiveIterator.OfLong iterator,
+	    long[] buffer, int max) {
+	if (iterator instanceof LongBatchIterator)
+	    return ((LongBatchIterator) iterator).nextBatch(buffer, max);
+	int n = 0;
+	while (n < max && iterator.hasNext())
+	    buffer[n++] = iterator.nextLong();
+	return n;
+    }
+
+    public static Iterable<Object> buildObjectIterable(
+	    final IteratorMaker<Object> iteratorMaker) {
+	return buildObjectIterable(iteratorMaker, Size.UNKNOWN);
+    }
+
+    /**
+     * The <code>buildObjectIterable</code> of the combinators, which tells its size.
+     */
+    static SizedIterable<Object> buildObjectIterable(
+	    final IteratorMaker<Object> iteratorMaker, final Size size) {
+	return new SizedIterable<Object>() {
+	    public Iterator<Object> iterator() {
+		return iteratorMaker.iterator();
+	    }
+
+	    public long sizeBound() {
+		return size.bound();
+	    }
+
+	    public boolean isSizeExact() {
+		return size.exact();
+	    }
+
+	    public Spliterator<Object> spliterator() {
+		return Iteration.spliterator(iterator(), size);
+	    }
+
+	    @Override
+	    public String toString() {
+		return preview(this);
+	    }
+	};
+    }
+
+    /**
+     * @return a spliterator over the iterator that is <code>SIZED</code> when the
+     * size is exact, and otherwise estimates it from its bound.
+     */
+    static <T> Spliterator<T> spliterator(final Iterator<T> iterator, Size size) {
+	long bound = size.bound();
+	if (bound == UNBOUNDED)
+	    return Spliterators.spliteratorUnknownSize(iterator,
+		    Spliterator.ORDERED);
+	if (size.exact())
+	    return Spliterators.spliterator(iterator, bound, Spliterator.ORDERED);
+	return new Spliterators.AbstractSpliterator<T>(bound,
+		Spliterator.ORDERED) {
+	    public boolean tryAdvance(Consumer<? super T> action) {
+		if (iterator.hasNext() == false)
+		    return false;
+		action.accept(iterator.next());
+		return true;
+	    }
+	};
+    }
+
+    public static Iterable<Integer> buildIntegerIterable(
+	    final IteratorMaker<Integer> iteratorMaker) {
+	return new Iterable<Integer>() {
+	    public Iterator<Integer> iterator() {
+		return iteratorMaker.iterator();
+	    }
+
+	    public Spliterator<Integer> spliterator() {
+		return Spliterators.spliteratorUnknownSize(iterator(),
+			Spliterator.ORDERED);
+	    }
+
+	    @Override
+	    public String toString() {
+		return preview(this);
+	    }
+	};
+    }
+
+    /**
+     * An <code>Iterable</code> of ints whose iterator hands out unboxed values
+     * through <code>nextInt()</code>. It is still an <code>Iterable&lt;Integer&gt;</code>,
+     * so it can be passed to every Object based combinator, which will box.
+     */
+    public static interface IntIterable extends Iterable<Integer> {
+	public PrimitiveIterator.OfInt iterator();
+
+	public default Spliterator.OfInt spliterator() {
+	    return Spliterators.spliteratorUnknownSize(iterator(),
+		    Spliterator.ORDERED);
+	}
+    }
+
+    /**
+     * An <code>Iterable</code> of longs whose iterator hands out unboxed values
+     * through <code>nextLong()</code>.
+     */
+    public static interface LongIterable extends Iterable<Long> {
+	public PrimitiveIterator.OfLong iterator();
+
+	public default Spliterator.OfLong spliterator() {
+	    return Spliterators.spliteratorUnknownSize(iterator(),
+		    Spliterator.ORDERED);
+	}
+    }
+
+    /**
+     * An <code>Iterable</code> of doubles whose iterator hands out unboxed values
+     * through <code>nextDouble()</code>.
+     */
+    public static interface DoubleIterable extends Iterable<Double> {
+	public PrimitiveIterator.OfDouble iterator();
+
+	public default Spliterator.OfDouble spliterator() {
+	    return Spliterators.spliteratorUnknownSize(iterator(),
+		    Spliterator.ORDERED);
+	}
+    }
+
+    public static interface IntIteratorMaker {
+	public PrimitiveIterator.OfInt iterator();
+    }
+
+    public static interface LongIteratorMaker {
+	public PrimitiveIterator.OfLong iterator();
+    }
+
+    public static IntIterable buildIntIterable(
+	    final IntIteratorMaker iteratorMaker) {
+	return buildIntIterable(iteratorMaker, Size.UNKNOWN);
+    }
+
+    static IntIterable buildIntIterable(IntIteratorMaker iteratorMaker,
+	    Size size) {
+	return new SizedInts(iteratorMaker, size);
+    }
+
+    /**
+     * The <code>IntIterable</code> of the combinators, which tells its size.
+     */
+    static class SizedInts implements IntIterable, SizedIterable<Integer> {
+	final IntIteratorMaker iteratorMaker;
+	final Size size;
+
+	SizedInts(IntIteratorMaker iteratorMaker, Size size) {
+	    this.iteratorMaker = iteratorMaker;
+	    this.size = size;
+	}
+
+	public PrimitiveIterator.OfInt iterator() {
+	    return iteratorMaker.iterator();
+	}
+
+	public long sizeBound() {
+	    return size.bound();
+	}
+
+	public boolean isSizeExact() {
+	    return size.exact();
+	}
+
+	public Spliterator.OfInt spliterator() {
+	    long bound = size.bound();
+	    return size.exact() && bound != UNBOUNDED ? Spliterators.spliterator(
+		    iterator(), bound, Spliterator.ORDERED) : IntIterable.super
+		    .spliterator();
+	}
+
+	@Override
+	public String toString() {
+	    return preview(this);
+	}
+    }
+
+    public static LongIterable buildLongIterable(
+	    final LongIteratorMaker iteratorMaker) {
+	return buildLongIterable(iteratorMaker, Size.UNKNOWN);
+    }
+
+    static LongIterable buildLongIterable(LongIteratorMaker iteratorMaker,
+	    Size size) {
+	return new SizedLongs(iteratorMaker, size);
+    }
+
+    /**
+     * The <code>LongIterable</code> of the combinators, which tells its size.
+     */
+    static class SizedLongs implements LongIterable, SizedIterable<Long> {
+	final LongIteratorMaker iteratorMaker;
+	final Size size;
+
+	SizedLongs(LongIteratorMaker iteratorMaker, Size size) {
+	    this.iteratorMaker = iteratorMaker;
+	    this.size = size;
+	}
+
+	public PrimitiveIterator.OfLong iterator() {
+	    return iteratorMaker.iterator();
+	}
+
+	public long sizeBound() {
+	    return size.bound();
+	}
+
+	public boolean isSizeExact() {
+	    return size.exact();
+	}
+
+	public Spliterator.OfLong spliterator() {
+	    long bound = size.bound();
+	    return size.exact() && bound != UNBOUNDED ? Spliterators.spliterator(
+		    iterator(), bound, Spliterator.ORDERED) : LongIterable.super
+		    .spliterator();
+	}
+
+	@Override
+	public String toString() {
+	    return preview(this);
+	}
+    }
+
+    /**
+     * An <code>Iterator</code> of <code>Enums</code> that can also be walked without
+     * allocating an <code>Enum</code> per element: call <code>nextValue()</code> and
+     * read the position from <code>index()</code>.
+     */
+    public static interface EnumIterator extends BatchIterator<Enum> {
+	public Object nextValue();
+
+	/**
+	 * @return the index of the element last returned, -1 before the first call.
+	 */
+	public int index();
+    }
+
+    public static interface EnumIterable extends SizedIterable<Enum> {
+	public EnumIterator iterator();
+    }
+
+    public static interface Indexer<T> {
+	public int size();
+
+	public T get(int index);
+    }
+
+    /**
+     * An <code>Iterable</code> that knows, before it is iterated, how many elements
+     * its iterators return: exactly <code>sizeBound()</code> if
+     * <code>isSizeExact()</code>, otherwise at most that many, where
+     * <code>UNBOUNDED</code> means unknown. An exact <code>UNBOUNDED</code> size is
+     * an endless iterable such as <code>count()</code>. The combinators work out
+     * their size from the sizes of their sources, so
+     * <code>map(f, range(n))</code> is exactly n long and
+     * <code>filter(p, range(n))</code> at most n, which <code>join</code>,
+     * <code>toArray</code>, <code>toCollection</code> and the columns use to
+     * allocate once, and the spliterators to report a size to parallel streams.
+     *
+     * @see #sizeBound(Iterable)
+     * @see #isSizeExact(Iterable)
+     */
+    public static interface SizedIterable<T> extends Iterable<T> {
+	public long sizeBound();
+
+	public boolean isSizeExact();
+    }
+
+    /**
+     * The size bound of an iterable of unknown or endless size.
+     */
+    public final static long UNBOUNDED = Long.MAX_VALUE;
+
+    /**
+     * @return the most elements an iterator of the iterable returns, taken from a
+     * <code>SizedIterable</code> or a <code>Collection</code>, otherwise
+     * <code>UNBOUNDED</code>.
+     */
+    public static long sizeBound(Iterable<?> iterable) {
+	if (iterable == null)
+	    return 0;
+	if (iterable instanceof SizedIterable)
+	    return ((SizedIterable<?>) iterable).sizeBound();
+	if (iterable instanceof Collection)
+	    return ((Collection<?>) iterable).size();
+	return UNBOUNDED;
+    }
+
+    /**
+     * @return true if an iterator of the iterable returns exactly
+     * <code>sizeBound(iterable)</code> elements.
+     */
+    public static boolean isSizeExact(Iterable<?> iterable) {
+	if (iterable == null || iterable instanceof Collection)
+	    return true;
+	if (iterable instanceof SizedIterable)
+	    return ((SizedIterable<?>) iterable).isSizeExact();
+	return false;
+    }
+
+    /**
+     * @return the exact size of the iterable if it is known and fits an array,
+     * otherwise -1.
+     */
+    static int arraySize(Iterable<?> iterable) {
+	long size = sizeBound(iterable);
+	return isSizeExact(iterable) && size <= Integer.MAX_VALUE - 8 ? (int) size
+		: -1;
+    }
+
+    /**
+     * An <code>Iterable</code> whose elements can be reached directly by position,
+     * such as the array behind <code>iterable(Object...)</code>, a <code>range</code>
+     * or a <code>RandomAccess</code> list. Combinators like <code>slice</code> use it
+     * to jump to an index instead of walking the underlying.
+     */
+    public static interface IndexedIterable<T> extends SizedIterable<T>,
+	    Indexer<T> {
+	public default long sizeBound() {
+	    return size();
+	}
+
+	public default boolean isSizeExact() {
+	    return true;
+	}
+
+	/**
+	 * @return a <code>SIZED</code> and <code>SUBSIZED</code> spliterator that
+	 * splits by index.
+	 */
+	public default Spliterator<T> spliterator() {
+	    return Iteration.spliterator(this, 0, size());
+	}
+    }
+
+    static <T> Spliterator<T> spliterator(final Indexer<T> indexer,
+	    final int start, final int stop) {
+	return new Spliterator<T>() {
+	    int index = start;
+
+	    public boolean tryAdvance(Consumer<? super T> action) {
+		if (index >= stop)
+		    return false;
+		action.accept(indexer.get(index++));
+		return true;
+	    }
+
+	    public void forEachRemaining(Consumer<? super T> action) {
+		int i = index;
+		index = stop;
+		for (; i < stop; i++)
+		    action.accept(indexer.get(i));
+	    }
+
+	    public Spliterator<T> trySplit() {
+		int middle = (index + stop) >>> 1;
+		if (middle <= index)
+		    return null;
+		Spliterator<T> prefix = spliterator(indexer, index, middle);
+		index = middle;
+		return prefix;
+	    }
+
+	    public long estimateSize() {
+		return stop - index;
+	    }
+
+	    public int characteristics() {
+		return ORDERED | SIZED | SUBSIZED;
+	    }
+	};
+    }
+
+    public static <T> IndexedIterable<T> buildIndexedIterable(
+	    final Indexer<T> indexer) {
+	return new IndexedIterable<T>() {
+	    public int size() {
+		return indexer.size();
+	    }
+
+	    public T get(int index) {
+		return indexer.get(index);
+	    }
+
+	    public Iterator<T> iterator() {
+		return new BatchIterator<T>() {
+		    int index = 0;
+		    final int size = indexer.size();
+
+		    public boolean hasNext() {
+			return index < size;
+		    }
+
+		    public T next() {
+			return indexer.get(index++);
+		    }
+
+		    public int nextBatch(Object[] buffer, int max) {
+			int n = Math.max(Math.min(max, size - index), 0);
+			for (int i = 0; i < n; i++)
+			    buffer[i] = indexer.get(index + i);
+			index += n;
+			return n;
+		    }
+
+		    public void remove() {
+		    }
+		};
+	    }
+
+	    @Override
+	    public String toString() {
+		return preview(this);
+	    }
+	};
+    }
+
+    /**
+     * The <code>IndexedIterable</code> of a combinator over indexed sources, whose
+     * <code>iterator()</code> reads by position unless instrumentation is enabled
+     * at the time, when it comes from iterators instead so that it is counted.
+     */
+    private static IndexedIterable<Object> buildIndexedIterable(
+	    final Indexer<Object> indexer, final IteratorMaker<Object> iterators) {
+	final IndexedIterable<Object> indexed = buildIndexedIterable(indexer);
+	return new IndexedIterable<Object>() {
+	    public int size() {
+		return indexed.size();
+	    }
+
+	    public Object get(int index) {
+		return indexed.get(index);
+	    }
+
+	    public Iterator<Object> iterator() {
+		return Instrumentation.enabled ? iterators.iterator() : indexed
+			.iterator();
+	    }
+
+	    @Override
+	    public String toString() {
+		return preview(this);
+	    }
+	};
+    }
+
+    /**
+     * The <code>IndexedIterable</code> behind <code>iterable(Object...)</code>, it reads
+     * the given array in place.
+     */
+    public static class ArrayIterable implements IndexedIterable<Object> {
+	final Object[] elements;
+
+	public ArrayIterable(Object... elements) {
+	    this.elements = elements;
+	}
+
+	public int size() {
+	    return elements.length;
+	}
+
+	public Object get(int index) {
+	    return elements[index];
+	}
+
+	public Iterator<Object> iterator() {
+	    return new BatchIterator<Object>() {
+		int index = 0;
+
+		public boolean hasNext() {
+		    return index < elements.length;
+		}
+
+		public Object next() {
+		    return elements[index++];
+		}
+
+		public int nextBatch(Object[] buffer, int max) {
+		    int n = Math.max(Math.min(max, elements.length - index), 0);
+		    System.arraycopy(elements, index, buffer, 0, n);
+		    index += n;
+		    return n;
+		}
+
+		public void remove() {
+		}
+	    };
+	}
+
+	public Spliterator<Object> spliterator() {
+	    return Spliterators.spliterator(elements, Spliterator.ORDERED);
+	}
+
+	@Override
+	public String toString() {
+	    return preview(this);
+	}
+    }
+
+    /**
+     * The <code>IntIterable</code> behind <code>range</code>. It keeps its bounds so
+     * that it can be indexed and sliced arithmetically.
+     */
+    public static class IntRange implements IntIterable, IndexedIterable<Integer> {
+	final public int start;
+	final public int stop;
+	final public int step;
+
+	public IntRange(int start, int stop, int step) {
+	    this.start = start;
+	    this.stop = stop;
+	    this.step = step;
+	}
+
+	public PrimitiveIterator.OfInt iterator() {
+	    return new IntBatchIterator() {
+		int index = start;
+
+		public boolean hasNext() {
+		    return index < stop;
+		}
+
+		public int nextInt() {
+		    int i = index;
+		    index = step > 0 && (long) stop - i <= step ? stop : i + step;
+		    return i;
+		}
+
+		public int nextBatch(int[] buffer, int max) {
+		    if (step <= 0)
+			return IntBatchIterator.super.nextBatch(buffer, max);
+		    long left = index >= stop ? 0
+			    : ((long) stop - index + step - 1) / step;
+		    int n = (int) Math.max(Math.min(max, left), 0);
+		    int first = index;
+		    for (int i = 0; i < n; i++)
+			buffer[i] = first + i * step;
+		    index = n == left ? stop : first + n * step;
+		    return n;
+		}
+
+		public void remove() {
+		}
+	    };
+	}
+
+	/**
+	 * @return a spliterator that splits by index, or for a range longer than
+	 * <code>Integer.MAX_VALUE</code> one over its iterator.
+	 */
+	public Spliterator.OfInt spliterator() {
+	    long length = length();
+	    if (length <= Integer.MAX_VALUE)
+		return spliterator(0, (int) length);
+	    return length == UNBOUNDED ? IntIterable.super.spliterator()
+		    : Spliterators.spliterator(iterator(), length,
+			    Spliterator.ORDERED);
+	}
+
+	Spliterator.OfInt spliterator(final int from, final int to) {
+	    return new Spliterator.OfInt() {
+		int index = from;
+
+		public boolean tryAdvance(IntConsumer action) {
+		    if (index >= to)
+			return false;
+		    action.accept(start + index++ * step);
+		    return true;
+		}
+
+		public void forEachRemaining(IntConsumer action) {
+		    int i = index;
+		    index = to;
+		    for (; i < to; i++)
+			action.accept(start + i * step);
+		}
+
+		public Spliterator.OfInt trySplit() {
+		    int middle = (index + to) >>> 1;
+		    if (middle <= index)
+			return null;
+		    Spliterator.OfInt prefix = spliterator(index, middle);
+		    index = middle;
+		    return prefix;
+		}
+
+		public long estimateSize() {
+		    return to - index;
+		}
+
+		public int characteristics() {
+		    return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+		}
+	    };
+	}
+
+	/**
+	 * @return the number of ints of the range, worked out in long, or
+	 * <code>UNBOUNDED</code> for a range that does not step towards its stop.
+	 */
+	public long length() {
+	    return rangeSize(start, stop, step);
+	}
+
+	/**
+	 * @return the length, or <code>Integer.MAX_VALUE</code> for a range longer
+	 * than that, which is then iterated rather than read by index.
+	 */
+	public int size() {
+	    return (int) Math.min(length(), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return the length, <code>UNBOUNDED</code> for a range that does not
+	 * step towards its stop.
+	 */
+	public long sizeBound() {
+	    return length();
+	}
+
+	public Integer get(int index) {
+	    return getInt(index);
+	}
+
+	public int getInt(int index) {
+	    if (index < 0 || index >= size())
+		throw new IndexOutOfBoundsException(String.valueOf(index));
+	    return start + index * step;
+	}
+
+	/**
+	 * The range of the elements that <code>slice(this, start, stop, step)</code>
+	 * would return, computed without iterating.
+	 */
+	public IntRange slice(int start, int stop, int step) {
+	    long last = stop < 0 ? this.stop : Math.min(this.stop, this.start
+		    + (long) stop * this.step);
+	    long first = Math.min(this.start + (long) start * this.step, last);
+	    return new IntRange((int) first, (int) last, (int) Math.min(
+		    (long) this.step * step, Integer.MAX_VALUE));
+	}
+
+	@Override
+	public String toString() {
+	    return preview(this);
+	}
+    }
+
+    /**
+     * Returns an <code>Iterable</code> object from the <code>varargs</code> or a given array.
+     * Should an array be passed, it will be used as the underlying.
+     *
+     * @param  elements a vararg of objects or types.
+     * @return an iterable.
+     */
+    public static Iterable iterable(final Object... elements) {
+	return new ArrayIterable(elements);
+    }
+
+    /**
+     * Returns an <code>Iterable</code> of Integers in the given the range from (0..stop] where the step is 1.
+     * There is no underlying.
+     *
+     * @param  stop, an integer.
+     * @return an <code>Iterable</code> of Integers.
+     * 
+     * @see range(start, stop, step)
+     */
+    public static IntIterable range(final int stop) {
+		return range(0, stop);
+    }
+    /**
+     * Returns an <code>Iterable</code> of Integers in the given the range from (start..stop] where the step is 1.
+     * There is no underlying.
+     *
+     * @param  start, an integer.
+     * @param  stop, an integer.
+     * @return an <code>Iterable</code> of Integers.
+     * 
+     * @see range(start, stop, step)
+     */
+    public static IntIterable range(final int start, final int stop) {
+		return range(start, stop, 1);
+    }
+    /**
+     * Returns an <code>Iterable</code> of Integers in the given the range from (start..stop] where the step is given.
+     * There is no underlying.
+     *
+     * @param  start, an integer.
+     * @param  stop, an integer.
+     * @return an <code>IntIterable</code> of Integers, unboxed through <code>nextInt()</code>.
+     *
+     * @see range(start, stop, step)
+     */
+    public static IntIterable range(final int start, final int stop,
+	    final int step) {
+	return new IntRange(start, stop, step);
+    }
+
+    /**
+     * Returns a <code>LongIterable</code> in the given the range from (start..stop] where the step is 1.
+     *
+     * @param  start, a long.
+     * @param  stop, a long.
+     * @return a <code>LongIterable</code>.
+     *
+     * @see range(start, stop, step)
+     */
+    public static LongIterable range(final long start, final long stop) {
+		return range(start, stop, 1L);
+    }
+
+    /**
+     * Returns a <code>LongIterable</code> in the given the range from (start..stop] where the step is given.
+     * Values are unboxed through <code>nextLong()</code>.
+     *
+     * @param  start, a long.
+     * @param  stop, a long.
+     * @param  step, a long.
+     * @return a <code>LongIterable</code>.
+     */
+    public static LongIterable range(final long start, final long stop,
+	    final long step) {
+	return buildLongIterable(new LongIteratorMaker() {
+	    public PrimitiveIterator.OfLong iterator() {
+		return new LongBatchIterator() {
+		    long index = start;
+
+		    public boolean hasNext() {
+			return index < stop;
+		    }
+
+		    public long nextLong() {
+			long i = index;
+			index += step;
+			return i;
+		    }
+
+		    public int nextBatch(long[] buffer, int max) {
+			int n = 0;
+			for (; n < max && index < stop; n++) {
+			    buffer[n] = index;
+			    index += step;
+			}
+			return n;
+		    }
+
+		    public void remove() {
+		    }
+		};
+	    }
+	}, step > 0 && rangeSize(start, stop, step) == UNBOUNDED ? Size.UNKNOWN
+		: Size.exactly(rangeSize(start, stop, step)));
+    }
+
+    /**
+     * @return the number of longs of a range, <code>UNBOUNDED</code> if it does not
+     * step towards its stop or has that many or more, so that a finite range
+     * too long for a long reports an unknown size rather than an endless one.
+     */
+    static long rangeSize(long start, long stop, long step) {
+	if (start >= stop)
+	    return 0;
+	if (step <= 0)
+	    return UNBOUNDED;
+	long steps = Long.divideUnsigned(stop - start - 1, step);
+	return steps < 0 || steps == UNBOUNDED ? UNBOUNDED : steps + 1;
+    }
+
+ 
+    /**
+     * Returns an <code>Iterable</code> of <code>Enums</code> given an Iterable.
+
+     *
+     * @param  iterable, an <code>Iterable</code>
+     * @return an <code>Iterable</code> of <code>Enums</code>.
+     * 
+     * @see <code>Enums</code>.
+     */
+
+    public static EnumIterable enumerate(final Iterable<?> iterable) {
+	return new EnumIterable() {
+	    public EnumIterator iterator() {
+		return new EnumIterator() {
+		    int index = -1;
+		    Iterator<?> iterator = iterable != null ? iterable
+			    .iterator() : Null;
+
+		    public boolean hasNext() {
+			return iterator.hasNext();
+		    }
+
+		    public Enum next() {
+			Object value = nextValue();
+			return new Enum(index, value);
+		    }
+
+		    public Object nextValue() {
+			Object value = iterator.next();
+			index++;
+			return value;
+		    }
+
+		    public int index() {
+			return index;
+		    }
+
+		    public void close() {
+			Iteration.close(iterator);
+		    }
+
+		    public void remove() {
+		    }
+		};
+	    }
+
+	    public long sizeBound() {
+		return Iteration.sizeBound(iterable);
+	    }
+
+	    public boolean isSizeExact() {
+		return Iteration.isSizeExact(iterable);
+	    }
+
+	    @Override
+	    public String toString() {
+		return preview(this);
+	    }
+	};
+    }
+
+    
+    /**
+     * Makes an iterable that returns selected elements from the underlying iterable. 
+     * If stop is -1, then iteration continues until the iterator is exhausted, 
+     * if at all; otherwise, it stops at the specified position. 
+     * Step = 1.
+     *
+     * @param  iterable, an <code>Iterable</code>
+     * @param  stop.
+     * @return an <code>Iterable</code>.
+     * 
+     * @see <code>slice</code>.
+     */
+    public static Iterable<Object> slice(Iterable<?> iterable, int stop) {
+	return slice(iterable, 0, stop);
+    }
+    /**
+     * Makes an iterable that returns selected elements from the underlying iterable. 
+     * If start is non-zero, then elements from the iterable are skipped until start 
+     * is reached. Afterward, elements are returned consecutively unless step is set 
+     * higher than one which results in items being skipped. 
+     * If stop is -1, then iteration continues until the iterator is exhausted, 
+     * if at all; otherwise, it stops at the specified position. 
+     *
+     * @param  iterable, an <code>Iterable</code>
+     * @param  start.
+     * @param  stop.
+     * @return an <code>Iterable</code>.
+     * 
+     * @see <code>slice</code>.
+     */
+    public static Iterable<Object> slice(Iterable<?> iterable, int start,
+	    int stop) {
+	return slice(iterable, start, stop, 1);
+    }
+    /**
+     * Makes an iterable that returns selected elements from the underlying iterable. 
+     * If start is non-zero, then elements from the iterable are skipped until start 
+     * is reached. Afterward, elements are returned consecutively unless step is set 
+     * higher than one which results in items being skipped.
+     * If stop is -1, then iteration continues until the iterator is exhausted.
+     * 
+     * A <code>range</code> is sliced arithmetically into another range, and an
+     * <code>IndexedIterable</code> or <code>RandomAccess</code> list is read by index,
+     * so the cost is proportional to the output rather than to start. Any other
+     * iterable is skipped through without allocating.
+     *
+     * @param  iterable, an <code>Iterable</code>
+     * @param  start.
+     * @param  stop.
+     * @param  step.
+     * @return an <code>Iterable</code>.
+     * 
+     * @see <code>slice</code>.
+     */
+    public static Iterable<Object> slice(final Iterable<?> iterable,
+	    final int start, final int stop, final int step) {
+	if (start < 0 || step <= 0)
+	    throw new IllegalArgumentException("slice(" + start + "," + stop
+		    + "," + step + ")");
+	if (iterable instanceof IntRange && ((IntRange) iterable).step > 0) {
+	    @SuppressWarnings("unchecked")
+	    Iterable<Object> range = (Iterable<Object>) (Iterable<?>) ((IntRange) iterable)
+		    .slice(start, stop, step);
+	    return range;
+	}
+	Indexer<?> indexer = indexer(iterable);
+	if (indexer != null)
+	    return slice(indexer, start, stop, step);
+	return buildObjectIterable(new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		return new BatchIterator<Object>() {
+		    Iterator<?> iterator = iterable != null ? iterable
+			    .iterator() : Null;
+		    long position = 0;
+		    long wanted = start;
+
+		    public boolean hasNext() {
+			if (stop >= 0 && wanted >= stop)
+			    return false;
+			while (position < wanted && iterator.hasNext()) {
+			    iterator.next();
+			    position++;
+			}
+			return position == wanted && iterator.hasNext();
+		    }
+
+		    public Object next() {
+			if (hasNext() == false)
+			    throw new NoSuchElementException();
+			position++;
+			wanted += step;
+			return iterator.next();
+		    }
+
+		    public void remove() {
+		    }
+		};
+	    }
+	}, Size.slice(iterable,
+		start, stop, step));
+    }
+
+    private static IndexedIterable<Object> slice(final Indexer<?> indexer,
+	    final int start, final int stop, final int step) {
+	return buildIndexedIterable(new Indexer<Object>() {
+	    public int size() {
+		int size = indexer.size();
+		int end = stop < 0 ? size : Math.min(stop, size);
+		return end <= start ? 0 : (int) (((long) end - start + step - 1) / step);
+	    }
+
+	    public Object get(int index) {
+		return indexer.get(start + index * step);
+	    }
+	});
+    }
+
+    /**
+     * @return an <code>Indexer</code> over the iterable if its elements can be
+     * reached by position, otherwise null. A range longer than
+     * <code>Integer.MAX_VALUE</code>, or endless, has no indexer.
+     */
+    static Indexer<?> indexer(Iterable<?> iterable) {
+	if (iterable instanceof IntRange
+		&& ((IntRange) iterable).length() > Integer.MAX_VALUE)
+	    return null;
+	if (iterable instanceof IndexedIterable)
+	    return (IndexedIterable<?>) iterable;
+	if (iterable instanceof List && iterable instanceof RandomAccess)
+	    return indexer((List<?>) iterable);
+	if (iterable instanceof Combinatoric
+		&& ((Combinatoric) iterable).count() <= Integer.MAX_VALUE)
+	    return indexer((Combinatoric) iterable);
+	return null;
+    }
+
+    private static Indexer<Object> indexer(final Combinatoric combinatoric) {
+	return new Indexer<Object>() {
+	    public int size() {
+		return (int) combinatoric.count();
+	    }
+
+	    public Object get(int index) {
+		return combinatoric.get(index);
+	    }
+	};
+    }
+
+    private static <T> Indexer<T> indexer(final List<T> list) {
+	return new Indexer<T>() {
+	    public int size() {
+		return list.size();
+	    }
+
+	    public T get(int index) {
+		return list.get(index);
+	    }
+	};
+    }
+
+ 
+    
+     	/**
+         * return an Iterable whose iterator will with every call to next apply lambda  whose arguments will be an item from each given iterable.
+         * Map will stops when the shortest iterable is exhausted. 
+         * @param  lambda, an <code>Lamda</code>
+         * @param  iterable, an <code>Iterable</code>
+         * @return an <code>Iterable</code>.
+         * <pre>
+         * -----------------------------------------------------
+         * Collection<Object> a = toCollection(new ArrayList<Object>(), 1, 2, 3, 4, 5, 6, 3, 3, 10);
+         * Iterable<Integer> b = range(2, 10, 3);
+         * System.out.println("a = " + str(a));
+         * System.out.println("b = " + b);
+         * 
+         * System.out.println("testing map(lambda x: x*10, b): "
+         * + map(new Lambda() {
+         *  	public Object process(Object... args) {
+         *  		return ((Integer) args[0]) * 10;
+         *  	}
+         *  }, b));
+         *  
+         *  System.out.println("testing map(lambda x,y: x*10+y, a, b): "
+         *  + map(new Lambda() {
+         *  	public Object process(Object... args) {
+         *			int x = (Integer) args[0];
+         *			int y = (Integer) args[1];
+         *			return x+y;
+         *  	}
+         *  }, a, b));
+         * .....................................................
+         * a = 1,2,3,4,5,6,3,3,10
+         * b = (2,5,8)
+         * testing map(lambda x: x*10, b): (20,50,80)
+         * testing map(lambda x,y: x*10+y, a, b): (12,25,38)
+         * -----------------------------------------------------
+         * <pre>
+         */
+    public static Iterable<Object> map(final Lambda lambda,
+	    final Iterable<?>... iterables) {
+	final IteratorMaker<Object> iterators = new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		Instrumentation.Stage stage = Instrumentation.open("map", lambda);
+		final Iterator<?>[] sources = Instrumentation.in(stage,
+			iterators(iterables));
+		if (sources.length == 1)
+		    return Instrumentation.out(stage, mapIterator(Instrumentation
+			    .time(stage, lambda1(lambda)), sources[0]));
+		if (sources.length == 2)
+		    return Instrumentation.out(stage, mapIterator(Instrumentation
+			    .time(stage, lambda2(lambda)), sources[0], sources[1]));
+		final Lambda timed = Instrumentation.time(stage, lambda);
+		return Instrumentation.out(stage, new BatchIterator<Object>() {
+		    final Object[] args = lambda instanceof LambdaN ? new Object[sources.length]
+			    : null;
+
+		    public boolean hasNext() {
+			for (Iterator<?> iterator : sources) {
+			    if (iterator.hasNext() == false)
+				return false;
+			}
+			return true;
+		    }
+
+		    public Object next() {
+			return timed.process(nextAll(sources, args));
+		    }
+
+		    public void close() {
+			for (Iterator<?> iterator : sources)
+			    Iteration.close(iterator);
+		    }
+
+		    public void remove() {
+		    }
+
+		});
+	    }
+	};
+	// get cannot share an args array across threads, the iterators can
+	final Indexer<?>[] indexers = lambda instanceof LambdaN ? null
+		: indexers(iterables);
+	if (indexers != null)
+	    return buildIndexedIterable(new Indexer<Object>() {
+		public int size() {
+		    return shortest(indexers);
+		}
+
+		public Object get(int index) {
+		    if (indexers.length == 1 && lambda instanceof Lambda1)
+			return ((Lambda1) lambda).process(indexers[0].get(index));
+		    if (indexers.length == 2 && lambda instanceof Lambda2)
+			return ((Lambda2) lambda).process(
+				indexers[0].get(index), indexers[1].get(index));
+		    return lambda.process(getAll(indexers, index));
+		}
+	    }, iterators);
+	return buildObjectIterable(iterators, Size.shortest(iterables));
+    }
+
+    private static Iterator<Object> mapIterator(final Lambda1 lambda,
+	    final Iterator<?> iterator) {
+	return new BatchIterator<Object>() {
+	    public boolean hasNext() {
+		return iterator.hasNext();
+	    }
+
+	    public Object next() {
+		return lambda.process(iterator.next());
+	    }
+
+	    public int nextBatch(Object[] buffer, int max) {
+		int n = Iteration.nextBatch(iterator, buffer, max);
+		for (int i = 0; i < n; i++)
+		    buffer[i] = lambda.process(buffer[i]);
+		return n;
+	    }
+
+	    public void close() {
+		Iteration.close(iterator);
+	    }
+
+	    public void remove() {
+	    }
+	};
+    }
+
+    private static Iterator<Object> mapIterator(final Lambda2 lambda,
+	    final Iterator<?> iterator1, final Iterator<?> iterator2) {
+	return new BatchIterator<Object>() {
+	    public boolean hasNext() {
+		return iterator1.hasNext() && iterator2.hasNext();
+	    }
+
+	    public Object next() {
+		return lambda.process(iterator1.next(), iterator2.next());
+	    }
+
+	    Object[] seconds = new Object[0];
+
+	    public int nextBatch(Object[] buffer, int max) {
+		if (seconds.length < max)
+		    seconds = new Object[max];
+		int n = Iteration.nextBatch(iterator1, buffer, max);
+		int m = Iteration.nextBatch(iterator2, seconds, n);
+		for (int i = 0; i < m; i++)
+		    buffer[i] = lambda.process(buffer[i], seconds[i]);
+		Arrays.fill(seconds, 0, m, null);
+		return m;
+	    }
+
+	    public void close() {
+		Iteration.close(iterator1);
+		Iteration.close(iterator2);
+	    }
+
+	    public void remove() {
+	    }
+	};
+    }
+
+    
+ 	/**
+     * This function returns a Iterable  of Iterable, where the i-th Iterable 
+     * contains the i-th element from each of the argument iterables.
+     * The returned Iterable is truncated in length to the length of the shortest 
+     * argument Iterable.
+     * 
+     * @param  iterables, an number of <code>Iterable</code>s
+     * @return an <code>Iterable</code>.
+     * 
+     * @see <code>map</code>.
+     */
+    public static Iterable<Object> zip(final Iterable<?>... iterables) {
+	final IteratorMaker<Object> iterators = new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		Instrumentation.Stage stage = Instrumentation.open("zip", null);
+		final Iterator<?>[] sources = Instrumentation.in(stage,
+			iterators(iterables));
+		return Instrumentation.out(stage, new BatchIterator<Object>() {
+		    public boolean hasNext() {
+			for (Iterator<?> iterator : sources) {
+			    if (iterator.hasNext() == false)
+				return false;
+			}
+			return true;
+		    }
+
+		    public Object next() {
+			return new ArrayIterable(nextAll(sources, null));
+		    }
+
+		    public void close() {
+			for (Iterator<?> iterator : sources)
+			    Iteration.close(iterator);
+		    }
+
+		    public void remove() {
+		    }
+
+		});
+	    }
+	};
+	final Indexer<?>[] indexers = indexers(iterables);
+	if (indexers != null)
+	    return buildIndexedIterable(new Indexer<Object>() {
+		public int size() {
+		    return shortest(indexers);
+		}
+
+		public Object get(int index) {
+		    return new ArrayIterable(getAll(indexers, index));
+		}
+	    }, iterators);
+	return buildObjectIterable(iterators, Size.shortest(iterables));
+    }
+
+    
+ 	/**
+     * This function returns a Iterable  from those elements of the given iterable for which 
+     * predicate returns not null. 
+     * 
+     * @param  predicate, a Lambda
+     * @param  iterable
+     * @return an <code>Iterable</code>.
+     * 
+     * @see  #map(com.syntazo.coffeegrains.Iteration.Lambda, Iterable...)
+     */
+ 
+    public static Iterable<Object> filter(final Lambda predicate,
+	    final Iterable<?> iterable) {
+	return buildObjectIterable(new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		final Instrumentation.Stage stage = Instrumentation.open("filter", predicate);
+		return Instrumentation.out(stage, new BatchIterator<Object>() {
+		    Iterator<?> iterator = Instrumentation.in(stage,
+			    iterable != null ? iterable.iterator() : Null);
+		    final Lambda1 test = Instrumentation.time(stage,
+			    lambda1(predicate));
+		    Object nextObj = null;
+
+		    public boolean hasNext() {
+			nextObj = getNext(nextObj);
+			return nextObj != null;
+		    }
+
+		    public Object getNext(Object obj) {
+			while (obj == null && iterator.hasNext()) {
+			    obj = test.process(iterator.next());
+			}
+			return obj;
+		    }
+
+		    public void remove() {
+			iterator.remove();
+		    }
+
+		    public void close() {
+			Iteration.close(iterator);
+		    }
+
+		    public Object next() {
+			Object obj = getNext(nextObj);
+			nextObj = null;
+			return obj;
+		    }
+
+		    public int nextBatch(Object[] buffer, int max) {
+			if (nextObj != null && max > 0) {
+			    buffer[0] = nextObj;
+			    nextObj = null;
+			    return 1;
+			}
+			int n;
+			while ((n = Iteration.nextBatch(iterator, buffer, max)) > 0) {
+			    int kept = 0;
+			    for (int i = 0; i < n; i++) {
+				Object obj = test.process(buffer[i]);
+				if (obj != null)
+				    buffer[kept++] = obj;
+			    }
+			    Arrays.fill(buffer, kept, n, null);
+			    if (kept > 0)
+				return kept;
+			}
+			return 0;
+		    }
+		});
+	    }
+	}, Size.atMost(iterable));
+    }
+
+    
+    
+ 	/**
+     * This function makes a Iterable  whose iterator whose iterator  
+     * returns elements from the given iterable as 
+     * long as the predicate is true. 
+     * 
+     * @param  predicate, a Lambda
+     * @param  iterable
+     * @return an <code>Iterable</code>.
+     * 
+     * @see #filter(com.syntazo.coffeegrains.Iteration.Lambda, Iterable)
+     * @see #dropwhile(com.syntazo.coffeegrains.Iteration.Lambda, Iterable)
+     */
+    
+    public static Iterable<Object> takewhile(final Lambda lambda,
+	    final Iterable<?> iterable) {
+	return buildObjectIterable(new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		final Instrumentation.Stage stage = Instrumentation.open("takewhile", lambda);
+		return Instrumentation.out(stage, new BatchIterator<Object>() {
+		    Iterator<?> iterator = Instrumentation.in(stage,
+			    iterable != null ? iterable.iterator() : Null);
+		    final Lambda1 test = Instrumentation.time(stage,
+			    lambda1(lambda));
+		    Object nextObj = null;
+		    boolean stopped = false;
+
+		    public boolean hasNext() {
+			nextObj = getNext(nextObj);
+			return nextObj != null;
+		    }
+
+		    public Object getNext(Object obj) {
+			if (obj == null && stopped == false && iterator.hasNext()) {
+			    obj = test.process(iterator.next());
+			    if (obj == null) {
+				stopped = true;
+				close();
+			    }
+			}
+			return obj;
+		    }
+
+		    public void remove() {
+			iterator.remove();
+		    }
+
+		    public void close() {
+			Iteration.close(iterator);
+		    }
+
+		    public Object next() {
+			Object obj = getNext(nextObj);
+			nextObj = null;
+			return obj;
+		    }
+		});
+	    }
+	}, Size.atMost(iterable));
+    }
+ 	/**
+     * This function makes a Iterable  whose  iterator  drops elements from the 
+     * given iterable as long as the predicate is true.
+     * Afterwards it  returns every element. 
+     * 
+     * Note, the iterator does not produce any output until the predicate 
+     * is true, so it may have a lengthy start-up time
+     * 
+     * @param  predicate, a Lambda
+     * @param  iterable
+     * @return an <code>Iterable</code>.
+     * 
+     * @see <code>filter, takewhile</code>.
+     */
+    public static Iterable<Object> dropwhile(final Lambda lambda,
+	    final Iterable<?> iterable) {
+	return buildObjectIterable(new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		final Instrumentation.Stage stage = Instrumentation.open("dropwhile", lambda);
+		return Instrumentation.out(stage, new BatchIterator<Object>() {
+		    Iterator<?> iterator = Instrumentation.in(stage,
+			    iterable != null ? iterable.iterator() : Null);
+		    final Lambda1 test = Instrumentation.time(stage,
+			    lambda1(lambda));
+		    boolean dropZone = true;
+		    Object nextObj = null;
+		    boolean ready = false;
+
+		    public boolean hasNext() {
+			while (dropZone && iterator.hasNext()) {
+			    Object obj = iterator.next();
+			    if ((Boolean) test.process(obj) == false) {
+				dropZone = false;
+				nextObj = obj;
+				ready = true;
+			    }
+			}
+			return ready || iterator.hasNext();
+		    }
+
+		    public void remove() {
+			iterator.remove();
+		    }
+
+		    public void close() {
+			Iteration.close(iterator);
+		    }
+
+		    public Object next() {
+			if (hasNext() == false)
+			    throw new NoSuchElementException();
+			if (ready == false)
+			    return iterator.next();
+			Object obj = nextObj;
+			nextObj = null;
+			ready = false;
+			return obj;
+		    }
+
+		    public int nextBatch(Object[] buffer, int max) {
+			if (dropZone || ready) {
+			    if (max <= 0 || hasNext() == false)
+				return 0;
+			    buffer[0] = next();
+			    return 1;
+			}
+			return Iteration.nextBatch(iterator, buffer, max);
+		    }
+		});
+	    }
+	}, Size.atMost(iterable));
+    }
+
+    
+    /**
+     * Makes an Iterable whoe iterator applies the lambda  function of two arguments 
+     * cumulatively to the items of the goven iterable, 
+     * from left to right, so as to reduce the iterable to a single value. 
+     * 
+     * The example the code below  calculates ((((1+2)+3)+4)+5). 
+     *  <pre>      
+     * -----------------------------------------------------
+     * 
+     * System.out.println("testing reduce(lambda x,y: x+y, a,0): "
+     * + reduce(new Lambda() {
+     * public Object process(Object... args) {
+     *	int x = (Integer) args[0];
+     *	int y = (Integer) args[1];
+     *	return x+y;
+     * }
+     * }, iterable(1,2,3,4,5), 0));
+     * 
+     * .....................................................
+     * testing reduce(lambda x,y: x+y, a,0): 15 
+     * -----------------------------------------------------
+     * </pre>
+     * 
+     * @param  predicate, a Lambda
+     * @param  iterable
+     * @param start, The initial start value.
+     * @return an <code>Iterable</code>.
+     * 
+     * @see <code>filter, takewhile</code>.
+     */
+    
+    public static Object reduce(Lambda lambda, final Iterable<Object> iterable,
+	    Object start) {
+	Lambda2 lambda2 = lambda2(lambda);
+	Object result = start;
+	Iterator<Object> iterator = iterable.iterator();
+	Object[] buffer = new Object[batchSize(iterable)];
+	int n;
+	while ((n = nextBatch(iterator, buffer, buffer.length)) > 0) {
+	    for (int i = 0; i < n; i++)
+		result = lambda2.process(result, buffer[i]);
+	}
+	return result;
+    }
+
+    /**
+     * The int specialization of <code>map</code>: every element is read with
+     * <code>nextInt()</code> and handed to the lambda unboxed, so a chain of
+     * <code>range</code>, <code>mapInt</code>, <code>filterInt</code> and
+     * <code>reduce</code> over ints does not allocate per element. It has a name
+     * of its own so that a Java lambda passed to <code>map</code> is never
+     * ambiguous.
+     *
+     * @param  lambda, an <code>IntUnaryOperator</code>
+     * @param  iterable, an <code>IntIterable</code>
+     * @return an <code>IntIterable</code>.
+     *
+     * @see #map(com.syntazo.coffeegrains.Iteration.Lambda, Iterable...)
+     */
+    public static IntIterable mapInt(final IntUnaryOperator lambda,
+	    final IntIterable iterable) {
+	return buildIntIterable(new IntIteratorMaker() {
+	    public PrimitiveIterator.OfInt iterator() {
+		return new IntBatchIterator() {
+		    PrimitiveIterator.OfInt iterator = iterable != null ? iterable
+			    .iterator() : NullInt;
+
+		    public boolean hasNext() {
+			return iterator.hasNext();
+		    }
+
+		    public int nextInt() {
+			return lambda.applyAsInt(iterator.nextInt());
+		    }
+
+		    public int nextBatch(int[] buffer, int max) {
+			int n = Iteration.nextBatch(iterator, buffer, max);
+			for (int i = 0; i < n; i++)
+			    buffer[i] = lambda.applyAsInt(buffer[i]);
+			return n;
+		    }
+
+		    public void remove() {
+			iterator.remove();
+		    }
+
+		    public void close() {
+			Iteration.close(iterator);
+		    }
+		};
+	    }
+	}, Size.of(iterable));
+    }
+
+    /**
+     * The int specialization of <code>filter</code>: returns the elements of the
+     * given iterable for which the predicate is true.
+     *
+     * @param  predicate, an <code>IntPredicate</code>
+     * @param  iterable, an <code>IntIterable</code>
+     * @return an <code>IntIterable</code>.
+     *
+     * @see #filter(com.syntazo.coffeegrains.Iteration.Lambda, Iterable)
+     */
+    public static IntIterable filterInt(final IntPredicate predicate,
+	    final IntIterable iterable) {
+	return buildIntIterable(new IntIteratorMaker() {
+	    public PrimitiveIterator.OfInt iterator() {
+		return new IntBatchIterator() {
+		    PrimitiveIterator.OfInt iterator = iterable != null ? iterable
+			    .iterator() : NullInt;
+		    boolean ready = false;
+		    int nextInt;
+
+		    public boolean hasNext() {
+			while (ready == false && iterator.hasNext()) {
+			    nextInt = iterator.nextInt();
+			    ready = predicate.test(nextInt);
+			}
+			return ready;
+		    }
+
+		    public int nextInt() {
+			if (hasNext() == false)
+			    throw new NoSuchElementException();
+			ready = false;
+			return nextInt;
+		    }
+
+		    public int nextBatch(int[] buffer, int max) {
+			if (ready && max > 0) {
+			    buffer[0] = nextInt;
+			    ready = false;
+			    return 1;
+			}
+			int n;
+			while ((n = Iteration.nextBatch(iterator, buffer, max)) > 0) {
+			    int kept = 0;
+			    for (int i = 0; i < n; i++) {
+				if (predicate.test(buffer[i]))
+				    buffer[kept++] = buffer[i];
+			    }
+			    if (kept > 0)
+				return kept;
+			}
+			return 0;
+		    }
+
+		    public void remove() {
+		    }
+		};
+	    }
+	}, Size.atMost(iterable));
+    }
+
+    /**
+     * The int specialization of <code>reduce</code>, the accumulator stays an int
+     * for the whole walk.
+     *
+     * @param  lambda, an <code>IntBinaryOperator</code>
+     * @param  iterable, an <code>IntIterable</code>
+     * @param start, The initial start value.
+     * @return the reduced int.
+     *
+     * @see #reduce(com.syntazo.coffeegrains.Iteration.Lambda, Iterable, Object)
+     */
+    public static int reduce(IntBinaryOperator lambda,
+	    final IntIterable iterable, int start) {
+	int result = start;
+	PrimitiveIterator.OfInt iterator = iterable.iterator();
+	int[] buffer = new int[batchSize(iterable)];
+	int n;
+	while ((n = nextBatch(iterator, buffer, buffer.length)) > 0) {
+	    for (int i = 0; i < n; i++)
+		result = lambda.applyAsInt(result, buffer[i]);
+	}
+	return result;
+    }
+
+    /**
+     * Make an iterator that returns elements from the first iterable until it
+     * is exhausted, then proceeds to the next iterable, until all of the
+     * iterables are exhausted. Used for treating consecutive sequences as a
+     * single sequence.
+     * 
+     * @param iterables, a varialble number of iterables to chain through.
+     * @return an <code>Iterable</code>.
+     */
+    public static Iterable<Object> chain(final Iterable<?>... iterables) {
+	return buildObjectIterable(new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		final Instrumentation.Stage stage = Instrumentation.open("chain", null);
+		return Instrumentation.out(stage, new BatchIterator<Object>() {
+		    int iterableIndex = 0;
+		    Iterator<?> iterator = Instrumentation.in(stage,
+			    iterables.length > 0 && iterables[0] != null ? iterables[0]
+				    .iterator() : Null);
+
+		    public boolean hasNext() {
+			boolean more = iterator.hasNext();
+			while (more == false
+				&& iterableIndex < iterables.length - 1) {
+			    iterableIndex++;
+			    iterator = Instrumentation.in(stage,
+				    iterables[iterableIndex] == null ? Null
+					    : iterables[iterableIndex].iterator());
+			    more = iterator.hasNext();
+			}
+			return more;
+		    }
+
+		    public Object next() {
+			hasNext();
+			return iterator.next();
+		    }
+
+		    public int nextBatch(Object[] buffer, int max) {
+			while (max > 0 && hasNext()) {
+			    int n = Iteration.nextBatch(iterator, buffer, max);
+			    if (n > 0)
+				return n;
+			}
+			return 0;
+		    }
+
+		    public void remove() {
+			iterator.remove();
+		    }
+
+		    public void close() {
+			Iteration.close(iterator);
+		    }
+		});
+	    }
+	}, Size.total(iterables));
+    }
+
+    /**
+     * Make an Iterable that lazily merges iterables that are each sorted by
+     * comparator into one sorted sequence. The next element of every iterable is
+     * held in a loser tree, so a call to next makes about log k comparisons for k
+     * iterables, and equal elements come out in the order of the iterables they
+     * came from.
+     * <pre>
+     * -----------------------------------------------------
+     * merge(null, iterable(1, 4, 7), iterable(2, 5), iterable(3, 6, 9))
+     * .....................................................
+     * (1,2,3,4,5,6,7,9)
+     * -----------------------------------------------------
+     * </pre>
+     * 
+     * @param comparator, the order of the iterables, or null for their natural order.
+     * @param iterables, a variable number of sorted iterables.
+     * @return an <code>Iterable</code>.
+     *
+     * @see #chain(Iterable...)
+     */
+    public static Iterable<Object> merge(final Comparator<Object> comparator,
+	    final Iterable<?>... iterables) {
+	return buildObjectIterable(new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		return new BatchIterator<Object>() {
+		    final int k = iterables.length;
+		    final Iterator<?>[] iterators = new Iterator<?>[k];
+		    final Object[] heads = new Object[k];
+		    final boolean[] live = new boolean[k];
+		    final int[] tree = new int[Math.max(k, 1)];
+		    boolean started = false;
+
+		    public boolean hasNext() {
+			if (started == false) {
+			    for (int i = 0; i < k; i++) {
+				iterators[i] = iterables[i] != null ? iterables[i]
+					.iterator() : Null;
+				advance(i);
+			    }
+			    tree[0] = play(1);
+			    started = true;
+			}
+			return k > 0 && live[tree[0]];
+		    }
+
+		    public Object next() {
+			if (hasNext() == false)
+			    throw new NoSuchElementException();
+			int winner = tree[0];
+			Object obj = heads[winner];
+			advance(winner);
+			for (int node = (winner + k) >> 1; node > 0; node >>= 1) {
+			    if (beats(tree[node], winner)) {
+				int loser = winner;
+				winner = tree[node];
+				tree[node] = loser;
+			    }
+			}
+			tree[0] = winner;
+			return obj;
+		    }
+
+		    void advance(int i) {
+			live[i] = iterators[i].hasNext();
+			heads[i] = live[i] ? iterators[i].next() : null;
+		    }
+
+		    /**
+		     * @return the winner below node, keeping the losers in tree.
+		     */
+		    int play(int node) {
+			if (node >= k)
+			    return node - k;
+			int left = play(2 * node);
+			int right = play(2 * node + 1);
+			if (beats(right, left)) {
+			    tree[node] = left;
+			    return right;
+			}
+			tree[node] = right;
+			return left;
+		    }
+
+		    @SuppressWarnings("unchecked")
+		    boolean beats(int i, int j) {
+			if (live[i] == false || live[j] == false)
+			    return live[i] || (live[j] == false && i < j);
+			int order = comparator != null ? comparator.compare(
+				heads[i], heads[j]) : ((Comparable<Object>) heads[i])
+				.compareTo(heads[j]);
+			return order < 0 || (order == 0 && i < j);
+		    }
+
+		    public void close() {
+			for (Iterator<?> iterator : iterators)
+			    Iteration.close(iterator);
+		    }
+
+		    public void remove() {
+		    }
+		};
+	    }
+	}, Size.total(iterables));
+    }
+
+    /**
+     * The int specialization of <code>merge</code>, over sorted
+     * <code>IntIterable</code>s compared without boxing.
+     * 
+     * @param iterables, a variable number of ascending <code>IntIterable</code>s.
+     * @return an <code>IntIterable</code>.
+     *
+     * @see #merge(Comparator, Iterable...)
+     */
+    public static IntIterable merge(final IntIterable... iterables) {
+	return buildIntIterable(new IntIteratorMaker() {
+	    public PrimitiveIterator.OfInt iterator() {
+		return new IntBatchIterator() {
+		    final int k = iterables.length;
+		    final PrimitiveIterator.OfInt[] iterators = new PrimitiveIterator.OfInt[k];
+		    final int[] heads = new int[k];
+		    final boolean[] live = new boolean[k];
+		    final int[] tree = new int[Math.max(k, 1)];
+		    boolean started = false;
+
+		    public boolean hasNext() {
+			if (started == false) {
+			    for (int i = 0; i < k; i++) {
+				iterators[i] = iterables[i] != null ? iterables[i]
+					.iterator() : NullInt;
+				advance(i);
+			    }
+			    tree[0] = play(1);
+			    started = true;
+			}
+			return k > 0 && live[tree[0]];
+		    }
+
+		    public int nextInt() {
+			if (hasNext() == false)
+			    throw new NoSuchElementException();
+			int winner = tree[0];
+			int value = heads[winner];
+			advance(winner);
+			for (int node = (winner + k) >> 1; node > 0; node >>= 1) {
+			    if (beats(tree[node], winner)) {
+				int loser = winner;
+				winner = tree[node];
+				tree[node] = loser;
+			    }
+			}
+			tree[0] = winner;
+			return value;
+		    }
+
+		    void advance(int i) {
+			live[i] = iterators[i].hasNext();
+			if (live[i])
+			    heads[i] = iterators[i].nextInt();
+		    }
+
+		    int play(int node) {
+			if (node >= k)
+			    return node - k;
+			int left = play(2 * node);
+			int right = play(2 * node + 1);
+			if (beats(right, left)) {
+			    tree[node] = left;
+			    return right;
+			}
+			tree[node] = right;
+			return left;
+		    }
+
+		    boolean beats(int i, int j) {
+			if (live[i] == false || live[j] == false)
+			    return live[i] || (live[j] == false && i < j);
+			return heads[i] < heads[j] || (heads[i] == heads[j] && i < j);
+		    }
+
+		    public void close() {
+			for (Iterator<?> iterator : iterators)
+			    Iteration.close(iterator);
+		    }
+
+		    public void remove() {
+		    }
+		};
+	    }
+	}, Size.total(iterables));
+    }
+
+    /**
+     * Make an Iterable of the elements of the given iterable in the order of the
+     * comparator, sorted in memory. Equal elements keep the order of the
+     * iterable. Each iterator reads the whole iterable on its first call to
+     * hasNext or next.
+     * <pre>
+     * -----------------------------------------------------
+     * sorted(iterable(3, 1, 2), null)
+     * .....................................................
+     * (1,2,3)
+     * -----------------------------------------------------
+     * </pre>
+     *
+     * @param iterable, the source.
+     * @param comparator, the order, or null for the natural order of the elements.
+     * @return an <code>Iterable</code>.
+     *
+     * @see #sorted(Iterable, Comparator, int)
+     */
+    public static Iterable<Object> sorted(Iterable<?> iterable,
+	    Comparator<Object> comparator) {
+	return new Sort(iterable, comparator, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The <code>sorted</code> that keeps at most limit elements on the heap, for
+     * iterables larger than memory. Every limit elements are sorted and written
+     * to a temporary file as a run, and the runs are merged back as they are
+     * iterated, so the elements must be <code>Serializable</code>. The files are
+     * deleted once read, or when the iterator is closed.
+     * <pre>
+     * -----------------------------------------------------
+     * sorted(map(parse, lines(path)), byTime, 1 << 20)
+     * -----------------------------------------------------
+     * </pre>
+     *
+     * @param iterable, the source.
+     * @param comparator, the order, or null for the natural order of the elements.
+     * @param limit, the number of elements sorted in memory at a time.
+     * @return an <code>Iterable</code>.
+     */
+    public static Iterable<Object> sorted(Iterable<?> iterable,
+	    Comparator<Object> comparator, int limit) {
+	if (limit < 1)
+	    throw new IllegalArgumentException("limit " + limit);
+	return new Sort(iterable, comparator, limit);
+    }
+
+    /**
+     * Make an Iterable of the elements of the given iterable that are not equal
+     * to an element before them, in the order they first come. Each iterator
+     * keeps the elements it has returned in a set, ints and longs unboxed in a
+     * set of primitives.
+     * <pre>
+     * -----------------------------------------------------
+     * distinct(iterable(3, 1, 3, 2, 1))
+     * .....................................................
+     * (3,1,2)
+     * -----------------------------------------------------
+     * </pre>
+     *
+     * @param iterable, the source.
+     * @return an <code>Iterable</code>.
+     *
+     * @see #distinct(Lambda, Iterable)
+     */
+    public static Iterable<Object> distinct(Iterable<?> iterable) {
+	return Distinct.distinct(null, iterable, 0, 0);
+    }
+
+    /**
+     * The <code>distinct</code> that tells elements apart by the key the lambda
+     * makes of them, keeping the first element of every key. Only the keys are
+     * kept, an <code>Integer</code> or <code>Long</code> key in a set of
+     * primitives, taking some 5 to 11 bytes for an int and 11 to 21 for a long,
+     * anything else in a <code>HashSet</code>.
+     *
+     * @param key, a <code>Lambda</code> of one element, or null for the element itself.
+     * @param iterable, the source.
+     * @return an <code>Iterable</code>.
+     */
+    public static Iterable<Object> distinct(Lambda key, Iterable<?> iterable) {
+	return Distinct.distinct(key, iterable, 0, 0);
+    }
+
+    /**
+     * The approximate <code>distinct</code>, which checks the keys against a
+     * Bloom filter sized for expected keys at the given false positive rate
+     * instead of keeping them. It never returns two elements of the same key,
+     * but drops a new key taken for one already seen, at about that rate as long
+     * as there are no more than expected keys. Its memory is fixed, about 1.2
+     * bytes a key at a rate of 1%. Keys other than ints and longs are hashed by
+     * their <code>hashCode</code>.
+     *
+     * @param key, a <code>Lambda</code> of one element, or null for the element itself.
+     * @param iterable, the source.
+     * @param expected, the number of distinct keys the filter is sized for.
+     * @param falsePositiveRate, the rate of new keys dropped, between 0 and 1.
+     * @return an <code>Iterable</code>.
+     */
+    public static Iterable<Object> distinct(Lambda key, Iterable<?> iterable,
+	    long expected, double falsePositiveRate) {
+	if (expected < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1)
+	    throw new IllegalArgumentException("distinct of " + expected
+		    + " keys at " + falsePositiveRate);
+	return Distinct.distinct(key, iterable, expected, falsePositiveRate);
+    }
+
+    /**
+     * The <code>distinct</code> of an <code>IntIterable</code>, kept in a set of
+     * ints without boxing.
+     *
+     * @see #distinct(Iterable)
+     */
+    public static IntIterable distinct(IntIterable iterable) {
+	return Distinct.distinct(iterable);
+    }
+
+    public static LongIterable distinct(LongIterable iterable) {
+	return Distinct.distinct(iterable);
+    }
+
+    /**
+     * Make an Iterable of the elements of the given iterable that differ from the
+     * element just before them, which removes the duplicates of a sorted
+     * iterable keeping only one element.
+     * <pre>
+     * -----------------------------------------------------
+     * uniqueJustSeen(iterable(1, 1, 2, 2, 2, 1))
+     * .....................................................
+     * (1,2,1)
+     * -----------------------------------------------------
+     * </pre>
+     *
+     * @param iterable, the source.
+     * @return an <code>Iterable</code>.
+     *
+     * @see #distinct(Iterable)
+     */
+    public static Iterable<Object> uniqueJustSeen(Iterable<?> iterable) {
+	return Distinct.justSeen(null, iterable);
+    }
+
+    /**
+     * The <code>uniqueJustSeen</code> that compares the keys the lambda makes of
+     * the elements.
+     *
+     * @param key, a <code>Lambda</code> of one element, or null for the element itself.
+     * @param iterable, the source.
+     * @return an <code>Iterable</code>.
+     */
+    public static Iterable<Object> uniqueJustSeen(Lambda key,
+	    Iterable<?> iterable) {
+	return Distinct.justSeen(key, iterable);
+    }
+
+    /**
+     * Splits one iterable into n independent iterables that all return its
+     * elements, reading the source only once. The elements one branch has read
+     * and another has not are kept in a ring buffer, which grows as far as the
+     * fastest branch runs ahead of the slowest, so a branch that is never read
+     * keeps every element, until it is closed. Each branch can be iterated once,
+     * a second iterator throws <code>IllegalStateException</code>, and all of them
+     * on the same thread.
+     * <pre>
+     * -----------------------------------------------------
+     * Iterable<Object>[] t = tee(map(parse, lines(path)), 2);
+     * Object total = reduce(plus, t[0], 0);
+     * Object longest = reduce(max, t[1], 0);
+     * -----------------------------------------------------
+     * </pre>
+     *
+     * @param iterable, the source.
+     * @param n, the number of branches.
+     * @return n <code>Iterable</code>s.
+     */
+    public static Iterable<Object>[] tee(Iterable<?> iterable, int n) {
+	return tee(new Tee(iterable != null ? iterable.iterator() : Null, n, 16),
+		n);
+    }
+
+    /**
+     * The thread safe <code>tee</code>, whose branches can be read from different
+     * threads. The ring buffer holds at most capacity elements, a branch that
+     * gets that far ahead of the slowest one waits for it to move on or be
+     * closed, so branches read on the same thread must stay within capacity of
+     * each other.
+     *
+     * @param iterable, the source.
+     * @param n, the number of branches.
+     * @param capacity, the most elements kept for the slower branches.
+     * @return n <code>Iterable</code>s.
+     *
+     * @see #tee(Iterable, int)
+     */
+    public static Iterable<Object>[] tee(Iterable<?> iterable, int n,
+	    int capacity) {
+	if (capacity < 1)
+	    throw new IllegalArgumentException("capacity " + capacity);
+	return tee(new Tee.Shared(iterable != null ? iterable.iterator() : Null,
+		n, capacity), n);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Iterable<Object>[] tee(final Tee tee, int n) {
+	Iterable<Object>[] branches = (Iterable<Object>[]) new Iterable<?>[n];
+	for (int i = 0; i < n; i++) {
+	    final int reader = i;
+	    branches[i] = buildObjectIterable(new IteratorMaker<Object>() {
+		public Iterator<Object> iterator() {
+		    return tee.reader(reader);
+		}
+	    });
+	}
+	return branches;
+    }
+
+    /**
+     * Make an Iterable whose iterator reads the given iterable ahead on a thread
+     * of its own, keeping up to capacity elements queued, so that a slow source
+     * such as a file or a remote call works while the consumer processes what it
+     * already has. Exceptions of the source are rethrown to the consumer, and
+     * closing the iterator, or a <code>takewhile</code>, <code>any</code>,
+     * <code>all</code> or <code>iterate</code> above it stopping early, stops the
+     * thread. The thread is virtual on runtimes that have virtual threads and a
+     * daemon thread otherwise.
+     * <pre>
+     * -----------------------------------------------------
+     * reduce(plus, map(parse, prefetch(lines(path), 1024)), 0)
+     * -----------------------------------------------------
+     * </pre>
+     *
+     * @param iterable, the source.
+     * @param capacity, the most elements read ahead.
+     * @return an <code>Iterable</code>.
+     */
+    public static Iterable<Object> prefetch(Iterable<?> iterable, int capacity) {
+	return prefetch(iterable, capacity, Prefetch.THREADS);
+    }
+
+    /**
+     * The <code>prefetch</code> that runs the source on threads of the given factory.
+     *
+     * @see #prefetch(Iterable, int)
+     */
+    public static Iterable<Object> prefetch(Iterable<?> iterable, int capacity,
+	    ThreadFactory threads) {
+	if (capacity < 1)
+	    throw new IllegalArgumentException("capacity " + capacity);
+	return new Prefetch(iterable, capacity, threads);
+    }
+
+    /**
+     * Make an Iterable of the sliding windows of the given iterable: the first
+     * size elements, then the size elements starting step further on, and so
+     * on, each window as a <code>Tuple</code>. The source is read once, into a
+     * ring buffer, however much the windows overlap. A window the source ends
+     * before filling is dropped.
+     * <pre>
+     * -----------------------------------------------------
+     * windowed(range(6), 3, 2)
+     * .....................................................
+     * ((0,1,2),(2,3,4))
+     * -----------------------------------------------------
+     * </pre>
+     *
+     * @param iterable, the source.
+     * @param size, the number of elements of a window.
+     * @param step, the distance between the starts of two windows.
+     * @return an <code>Iterable</code> of <code>Tuple</code>s.
+     *
+     * @see #windowed(Iterable, int, int, boolean)
+     */
+    public static Iterable<Object> windowed(Iterable<?> iterable, int size,
+	    int step) {
+	return windowed(iterable, size, step, false);
+    }
+
+    /**
+     * The <code>windowed</code> that, with reuse, hands out one read only
+     * <code>Windows.Window</code> per iterator instead of a new
+     * <code>Tuple</code> per window. Each call to next moves the view on to the
+     * next window, so it must not be kept, but a rolling computation over a
+     * long source allocates nothing per step.
+     *
+     * @param iterable, the source.
+     * @param size, the number of elements of a window.
+     * @param step, the distance between the starts of two windows.
+     * @param reuse, true for one view moved along the source.
+     * @return an <code>Iterable</code> of <code>Tuple</code>s or <code>Window</code>s.
+     */
+    public static Iterable<Object> windowed(Iterable<?> iterable, int size,
+	    int step, boolean reuse) {
+	return Windows.windows(iterable, size, step, false, reuse, false);
+    }
+
+    /**
+     * The <code>windowed</code> of an <code>IntIterable</code>, which reads it
+     * without boxing into <code>IntWindow</code>s, one per window or with reuse
+     * one view per iterator.
+     *
+     * @see #windowed(Iterable, int, int, boolean)
+     */
+    public static Iterable<Object> windowed(IntIterable iterable, int size,
+	    int step, boolean reuse) {
+	return Windows.windows(iterable, size, step, false, reuse, true);
+    }
+
+    public static Iterable<Object> windowed(LongIterable iterable, int size,
+	    int step, boolean reuse) {
+	return Windows.windows(iterable, size, step, false, reuse, true);
+    }
+
+    public static Iterable<Object> windowed(DoubleIterable iterable, int size,
+	    int step, boolean reuse) {
+	return Windows.windows(iterable, size, step, false, reuse, true);
+    }
+
+    public static Iterable<Object> windowed(IntIterable iterable, int size,
+	    int step) {
+	return windowed(iterable, size, step, false);
+    }
+
+    public static Iterable<Object> windowed(LongIterable iterable, int size,
+	    int step) {
+	return windowed(iterable, size, step, false);
+    }
+
+    public static Iterable<Object> windowed(DoubleIterable iterable, int size,
+	    int step) {
+	return windowed(iterable, size, step, false);
+    }
+
+    /**
+     * Make an Iterable that cuts the given iterable into consecutive chunks of
+     * the given size, each as a <code>Tuple</code>, the last one shorter if the
+     * source does not divide evenly.
+     * <pre>
+     * -----------------------------------------------------
+     * chunked(range(5), 2)
+     * .....................................................
+     * ((0,1),(2,3),(4))
+     * -----------------------------------------------------
+     * </pre>
+     *
+     * @param iterable, the source.
+     * @param size, the number of elements of a chunk.
+     * @return an <code>Iterable</code> of <code>Tuple</code>s.
+     *
+     * @see #chunked(Iterable, int, boolean)
+     */
+    public static Iterable<Object> chunked(Iterable<?> iterable, int size) {
+	return chunked(iterable, size, false);
+    }
+
+    /**
+     * The <code>chunked</code> that, with reuse, hands out one read only
+     * <code>Windows.Window</code> per iterator, moved on to the next chunk by
+     * each call to next, instead of a new <code>Tuple</code> per chunk.
+     *
+     * @param iterable, the source.
+     * @param size, the number of elements of a chunk.
+     * @param reuse, true for one view moved along the source.
+     * @return an <code>Iterable</code> of <code>Tuple</code>s or <code>Window</code>s.
+     *
+     * @see #windowed(Iterable, int, int, boolean)
+     */
+    public static Iterable<Object> chunked(Iterable<?> iterable, int size,
+	    boolean reuse) {
+	return Windows.windows(iterable, size, size, true, reuse, false);
+    }
+
+    /**
+     * The <code>chunked</code> of an <code>IntIterable</code>, which reads it
+     * without boxing into <code>IntWindow</code>s.
+     *
+     * @see #chunked(Iterable, int, boolean)
+     */
+    public static Iterable<Object> chunked(IntIterable iterable, int size,
+	    boolean reuse) {
+	return Windows.windows(iterable, size, size, true, reuse, true);
+    }
+
+    public static Iterable<Object> chunked(LongIterable iterable, int size,
+	    boolean reuse) {
+	return Windows.windows(iterable, size, size, true, reuse, true);
+    }
+
+    public static Iterable<Object> chunked(DoubleIterable iterable, int size,
+	    boolean reuse) {
+	return Windows.windows(iterable, size, size, true, reuse, true);
+    }
+
+    public static Iterable<Object> chunked(IntIterable iterable, int size) {
+	return chunked(iterable, size, false);
+    }
+
+    public static Iterable<Object> chunked(LongIterable iterable, int size) {
+	return chunked(iterable, size, false);
+    }
+
+    public static Iterable<Object> chunked(DoubleIterable iterable, int size) {
+	return chunked(iterable, size, false);
+    }
+
+    /**
+     * The <code>map</code> of one iterable that calls the lambda concurrently, on
+     * the common <code>ForkJoinPool</code>, for up to concurrency elements at a time,
+     * and returns the results in the order of the iterable. The iterable is read
+     * no further than concurrency elements ahead of the consumer, so it may be
+     * endless. The lambda must be thread safe.
+     * <pre>
+     * -----------------------------------------------------
+     * iterate(100, parallelMap(render, count(0), 8))
+     * -----------------------------------------------------
+     * </pre>
+     *
+     * @param lambda, an expensive <code>Lambda</code> of one argument.
+     * @param iterable, the source.
+     * @param concurrency, the most calls in flight.
+     * @return an <code>Iterable</code>.
+     *
+     * @see #map(com.syntazo.coffeegrains.Iteration.Lambda, Iterable...)
+     */
+    public static Iterable<Object> parallelMap(Lambda lambda,
+	    Iterable<?> iterable, int concurrency) {
+	return parallelMap(lambda, iterable, concurrency, ForkJoinPool
+		.commonPool());
+    }
+
+    /**
+     * The <code>parallelMap</code> that calls the lambda on the given executor, such
+     * as one of virtual threads for a lambda that blocks on I/O.
+     *
+     * @see #parallelMap(com.syntazo.coffeegrains.Iteration.Lambda, Iterable, int)
+     */
+    public static Iterable<Object> parallelMap(Lambda lambda,
+	    Iterable<?> iterable, int concurrency, Executor executor) {
+	if (concurrency < 1)
+	    throw new IllegalArgumentException("concurrency " + concurrency);
+	return new ParallelMap(lambda, iterable, concurrency, executor, true);
+    }
+
+    /**
+     * The <code>parallelMap</code> that returns each result as soon as it is ready,
+     * so one slow call does not hold back the ones after it.
+     *
+     * @see #parallelMap(com.syntazo.coffeegrains.Iteration.Lambda, Iterable, int)
+     */
+    public static Iterable<Object> unorderedMap(Lambda lambda,
+	    Iterable<?> iterable, int concurrency) {
+	return unorderedMap(lambda, iterable, concurrency, ForkJoinPool
+		.commonPool());
+    }
+
+    /**
+     * @see #unorderedMap(com.syntazo.coffeegrains.Iteration.Lambda, Iterable, int)
+     * @see #parallelMap(com.syntazo.coffeegrains.Iteration.Lambda, Iterable, int, Executor)
+     */
+    public static Iterable<Object> unorderedMap(Lambda lambda,
+	    Iterable<?> iterable, int concurrency, Executor executor) {
+	if (concurrency < 1)
+	    throw new IllegalArgumentException("concurrency " + concurrency);
+	return new ParallelMap(lambda, iterable, concurrency, executor, false);
+    }
+
+    /**
+     * Starts a fluent <code>Pipeline</code> over the given iterable, whose
+     * <code>map</code>, <code>filter</code>, <code>takewhile</code>, <code>dropwhile</code>
+     * and <code>iterate</code> stages run fused in a single loop.
+     *
+     * @param iterable, the source.
+     * @return a <code>Pipeline</code> with no stages.
+     */
+    public static Pipeline pipeline(final Iterable<?> iterable) {
+	return new Pipeline(iterable);
+    }
+
+    /**
+     * Starts a <code>Parallel</code> evaluation of <code>map</code>, <code>filter</code>
+     * and <code>reduce</code> over the given iterable. A <code>range</code>, an
+     * <code>iterable(Object...)</code> or a <code>RandomAccess</code> list is split into
+     * chunks that run on a <code>ForkJoinPool</code>, anything else runs sequentially.
+     *
+     * @param iterable, the source.
+     * @return a <code>Parallel</code> with no stages.
+     */
+    public static Parallel parallel(final Iterable<?> iterable) {
+	return new Parallel(iterable);
+    }
+
+    public static Iterable<Object> iterate(final int count,
+	    final Iterable<?> iterable) {
+	Indexer<?> indexer = indexer(iterable);
+	if (indexer != null)
+	    return slice(indexer, 0, Math.max(count, 0), 1);
+	final IteratorMaker<Object> iteratorMaker = new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		return new BatchIterator<Object>() {
+		    int number = 0;
+		    Iterator<?> iterator = iterable != null ? iterable
+			    .iterator() : Null;
+
+		    public boolean hasNext() {
+			if (number < count)
+			    return iterator.hasNext();
+			close();
+			return false;
+		    }
+
+		    public Object next() {
+			number++;
+			return iterator.next();
+		    }
+
+		    public int nextBatch(Object[] buffer, int max) {
+			int n = Iteration.nextBatch(iterator, buffer, Math.min(max,
+				count - number));
+			number += n;
+			return n;
+		    }
+
+		    public void remove() {
+			iterator.remove();
+		    }
+
+		    public void close() {
+			Iteration.close(iterator);
+		    }
+		};
+	    }
+	};
+	return buildObjectIterable(iteratorMaker, Size.first(count, iterable));
+    }
+
+    
+    /**
+     * Make an Iterable whose iterator  returns consecutive integers starting with start.
+     * 
+     * @param start.
+     * @return an <code>Iterable</code>.
+     */
+    public static IntIterable count(final int start) {
+	return buildIntIterable(new IntIteratorMaker() {
+	    public PrimitiveIterator.OfInt iterator() {
+		return new IntBatchIterator() {
+		    int iterableIndex = start;
+
+		    public boolean hasNext() {
+			return true;
+		    }
+
+		    public int nextInt() {
+			return iterableIndex++;
+		    }
+
+		    public int nextBatch(int[] buffer, int max) {
+			int first = iterableIndex;
+			for (int i = 0; i < max; i++)
+			    buffer[i] = first + i;
+			iterableIndex += Math.max(max, 0);
+			return Math.max(max, 0);
+		    }
+
+		    public void remove() {
+		    }
+		};
+	    }
+	}, Size.ENDLESS);
+    }
+
+    /**
+     * Make a <code>LongIterable</code> whose iterator  returns consecutive longs starting with start.
+     *
+     * @param start.
+     * @return a <code>LongIterable</code>.
+     */
+    public static LongIterable count(final long start) {
+	return buildLongIterable(new LongIteratorMaker() {
+	    public PrimitiveIterator.OfLong iterator() {
+		return new LongBatchIterator() {
+		    long iterableIndex = start;
+
+		    public boolean hasNext() {
+			return true;
+		    }
+
+		    public long nextLong() {
+			return iterableIndex++;
+		    }
+
+		    public int nextBatch(long[] buffer, int max) {
+			for (int i = 0; i < max; i++)
+			    buffer[i] = iterableIndex++;
+			return Math.max(max, 0);
+		    }
+
+		    public void remove() {
+		    }
+		};
+	    }
+	}, Size.ENDLESS);
+    }
+
+
+    /**
+     * Make an Iterable whose iterator  endlessly returning elements from the given iterable.
+     * Each pass starts a new iterator of iterable, wrap it in <code>cached</code> to
+     * read it only once.
+     * 
+     * @param iterable.
+     * @return an <code>Iterable</code>.
+     *
+     * @see #cached(Iterable)
+     */
+    public static Iterable<Object> cycle(final Iterable<?> iterable) {
+	return buildObjectIterable(new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		return new BatchIterator<Object>() {
+		    Iterator<?> iterator = iterable != null ? iterable
+			    .iterator() : Null;
+
+		    public boolean hasNext() {
+			if (iterator.hasNext() || iterable == null)
+			    return iterator.hasNext();
+			iterator = iterable.iterator();
+			return iterator.hasNext();
+		    }
+
+		    public Object next() {
+			if (hasNext() == false)
+			    throw new NoSuchElementException();
+			return iterator.next();
+		    }
+
+		    public int nextBatch(Object[] buffer, int max) {
+			int n = Iteration.nextBatch(iterator, buffer, max);
+			if (n == 0 && max > 0 && iterable != null) {
+			    iterator = iterable.iterator();
+			    n = Iteration.nextBatch(iterator, buffer, max);
+			}
+			return n;
+		    }
+
+		    public void remove() {
+			iterator.remove();
+		    }
+
+		    public void close() {
+			Iteration.close(iterator);
+		    }
+
+		};
+	    }
+	}, Size.cycle(iterable));
+    }
+
+    /**
+     * Make an Iterable whose iterator  endlessly returning elements from the given iterable.
+     * 
+     * @param iterable.
+     * @return an <code>Iterable</code>.
+     */
+    
+    public static Iterable<Object> repeat(final Object object) {
+	return buildObjectIterable(new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		return new BatchIterator<Object>() {
+		    public boolean hasNext() {
+			return true;
+		    }
+
+		    public Object next() {
+			return object;
+		    }
+
+		    public int nextBatch(Object[] buffer, int max) {
+			Arrays.fill(buffer, 0, Math.max(max, 0), object);
+			return Math.max(max, 0);
+		    }
+
+		    public void remove() {
+		    }
+		};
+	    }
+	}, Size.ENDLESS);
+    }
+    
+    /**
+     * Make an Iterable whose iterator returns an iterable of the given objects  repeating,  count, number of times.
+     * 
+     * @param count, the number of times to repeat.
+     * @param objects, a variable number of Objects.
+     * @return an <code>Iterable</code>.
+     */
+    public static Iterable<Object> repeat(int count, Object... objects) {
+
+	return repeat(count, iterable(objects));
+    }
+
+    /**
+     * Make an Iterable whose iterator returns the elements of the given iterable
+     * count times over, starting a new iterator of iterable on every pass.
+     * 
+     * @param count, the number of times to repeat.
+     * @param iterable.
+     * @return an <code>Iterable</code>.
+     *
+     * @see #cached(Iterable)
+     */
+    public static Iterable<Object> repeat(final int count,
+	    final Iterable<?> iterable) {
+	return buildObjectIterable(new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		return new BatchIterator<Object>() {
+		    Iterator<?> iterator = iterable != null ? iterable
+			    .iterator() : Null;
+		    int cycleNo = 0;
+
+		    public boolean hasNext() {
+			if (iterator.hasNext() == false) {
+			    iterator = iterable.iterator();
+			    cycleNo++;
+			}
+			return cycleNo < count;
+		    }
+
+		    public Object next() {
+			return iterator.next();
+		    }
+
+		    public int nextBatch(Object[] buffer, int max) {
+			while (max > 0 && hasNext()) {
+			    int n = Iteration.nextBatch(iterator, buffer, max);
+			    if (n > 0)
+				return n;
+			}
+			return 0;
+		    }
+
+		    public void remove() {
+			iterator.remove();
+		    }
+
+		    public void close() {
+			Iteration.close(iterator);
+		    }
+
+		};
+	    }
+	}, Size.times(count, iterable));
+    }
+
+    /**
+     * Make an Iterable of the cartesian product of the given iterables: a
+     * <code>Tuple</code> of one element from each, the last iterable varying
+     * fastest, as nested for loops would. The iterables are read into arrays
+     * first.
+     * <pre>
+     * -----------------------------------------------------
+     * product(iterable("a", "b"), range(3))
+     * .....................................................
+     * ((a,0),(a,1),(a,2),(b,0),(b,1),(b,2))
+     * -----------------------------------------------------
+     * </pre>
+     * 
+     * @param iterables, a variable number of iterables.
+     * @return a <code>Combinatoric</code>.
+     */
+    public static Combinatoric product(Iterable<?>... iterables) {
+	Object[][] pools = new Object[iterables.length][];
+	for (int i = 0; i < iterables.length; i++)
+	    pools[i] = pool(iterables[i]);
+	return new Combinatoric(Combinatoric.PRODUCT, pools, pools.length);
+    }
+
+    /**
+     * Make an Iterable of the r long arrangements of the elements of the given
+     * iterable, as <code>Tuple</code>s in lexicographic order of their positions.
+     * Elements are told apart by position, not by value.
+     * 
+     * @param iterable.
+     * @param r, the length of each permutation.
+     * @return a <code>Combinatoric</code>.
+     */
+    public static Combinatoric permutations(Iterable<?> iterable, int r) {
+	if (r < 0)
+	    throw new IllegalArgumentException("r " + r);
+	return new Combinatoric(Combinatoric.PERMUTATIONS,
+		new Object[][] { pool(iterable) }, r);
+    }
+
+    /**
+     * @return every full length permutation of the given iterable.
+     *
+     * @see #permutations(Iterable, int)
+     */
+    public static Combinatoric permutations(Iterable<?> iterable) {
+	Object[] pool = pool(iterable);
+	return new Combinatoric(Combinatoric.PERMUTATIONS,
+		new Object[][] { pool }, pool.length);
+    }
+
+    /**
+     * Make an Iterable of the r long subsequences of the elements of the given
+     * iterable, as <code>Tuple</code>s keeping the order of the iterable.
+     * <pre>
+     * -----------------------------------------------------
+     * combinations(range(4), 2)
+     * .....................................................
+     * ((0,1),(0,2),(0,3),(1,2),(1,3),(2,3))
+     * -----------------------------------------------------
+     * </pre>
+     * 
+     * @param iterable.
+     * @param r, the length of each combination.
+     * @return a <code>Combinatoric</code>.
+     */
+    public static Combinatoric combinations(Iterable<?> iterable, int r) {
+	if (r < 0)
+	    throw new IllegalArgumentException("r " + r);
+	return new Combinatoric(Combinatoric.COMBINATIONS,
+		new Object[][] { pool(iterable) }, r);
+    }
+
+    private static Object[] pool(Iterable<?> iterable) {
+	if (iterable instanceof ArrayIterable)
+	    return ((ArrayIterable) iterable).elements;
+	return toArray(iterable);
+    }
+
+    /**
+     * Make an Iterable that reads the given iterable once and saves its elements,
+     * so that later iterators replay them instead of running the source again.
+     * <code>cycle</code> and <code>repeat</code> start a new iterator of their source on
+     * every pass, <code>cycle(cached(map(parse, lines(path))))</code> parses the file
+     * once. Every element is kept on the heap.
+     * 
+     * @param iterable.
+     * @return an <code>Iterable</code>.
+     */
+    public static Iterable<Object> cached(Iterable<?> iterable) {
+	return new Cache(iterable, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The <code>cached</code> that keeps at most limit elements on the heap. The
+     * elements past limit are serialized to a temporary file and read back on
+     * later passes, so they must be <code>Serializable</code>. The file is deleted
+     * when the returned iterable, which is <code>AutoCloseable</code>, is closed
+     * or collected.
+     * 
+     * @param iterable.
+     * @param limit, the number of elements kept on the heap.
+     * @return an <code>Iterable</code>.
+     *
+     * @see #cached(Iterable)
+     */
+    public static Iterable<Object> cached(Iterable<?> iterable, int limit) {
+	if (limit < 0)
+	    throw new IllegalArgumentException("limit " + limit);
+	return new Cache(iterable, limit);
+    }
+
+    /**
+     * A test method that return true if the predicate evaluates true for all elements 
+     * returned by the iterable, otherwise false.
+     * 
+     * @param predicate.
+     * @param iterable.
+     * @return boolean, true if the predicate evaluates true for all elements 
+     * returned by the iterable, otherwise false.
+     */
+    
+    public static boolean all(Lambda predicate, Iterable<?> iterable) {
+	Lambda1 test = lambda1(predicate);
+	Iterator<?> iterator = iterable.iterator();
+	while (iterator.hasNext()) {
+	    if (test.process(iterator.next()) == null) {
+		close(iterator);
+		return false;
+	    }
+	}
+	return true;
+    }
+    
+    /**
+     * A test method that return true if the  predicate evaluates true for any element 
+     * returned by the iterable, otherwise false.
+     * 
+     * @param predicate.
+     * @param iterable.
+     * @return boolean, true if the predicate evaluates true for any element 
+     * returned by the iterable, otherwise false.
+     */
+    public static boolean any(Lambda lambda, Iterable<?> iterable) {
+	Lambda1 test = lambda1(lambda);
+	Iterator<?> iterator = iterable.iterator();
+	while (iterator.hasNext()) {
+	    if (test.process(iterator.next()) == null) {
+		close(iterator);
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    
+    
+    /**
+     * Adapts a <code>Lambda</code> to one argument. A <code>LambdaN</code> gets one
+     * reused args array, so call this once per iterator and not per element.
+     */
+    static Lambda1 lambda1(final Lambda lambda) {
+	if (lambda instanceof Lambda1)
+	    return (Lambda1) lambda;
+	if (lambda instanceof LambdaN)
+	    return new Lambda1() {
+		final Object[] args = new Object[1];
+
+		public Object process(Object arg) {
+		    args[0] = arg;
+		    return lambda.process(args);
+		}
+	    };
+	return new Lambda1() {
+	    public Object process(Object arg) {
+		return lambda.process(arg);
+	    }
+	};
+    }
+
+    /**
+     * Adapts a <code>Lambda</code> to two arguments.
+     *
+     * @see #lambda1(com.syntazo.coffeegrains.Iteration.Lambda)
+     */
+    static Lambda2 lambda2(final Lambda lambda) {
+	if (lambda instanceof Lambda2)
+	    return (Lambda2) lambda;
+	if (lambda instanceof LambdaN)
+	    return new Lambda2() {
+		final Object[] args = new Object[2];
+
+		public Object process(Object arg1, Object arg2) {
+		    args[0] = arg1;
+		    args[1] = arg2;
+		    return lambda.process(args);
+		}
+	    };
+	return new Lambda2() {
+	    public Object process(Object arg1, Object arg2) {
+		return lambda.process(arg1, arg2);
+	    }
+	};
+    }
+
+    /**
+     * @return an <code>Indexer</code> for every iterable, or null unless all of them
+     * can be reached by position.
+     */
+    private static Indexer<?>[] indexers(Iterable<?>[] iterables) {
+	if (iterables.length == 0)
+	    return null;
+	Indexer<?>[] indexers = new Indexer<?>[iterables.length];
+	for (int i = 0; i < iterables.length; i++) {
+	    indexers[i] = indexer(iterables[i]);
+	    if (indexers[i] == null)
+		return null;
+	}
+	return indexers;
+    }
+
+    /**
+     * @return the size of the shortest indexer.
+     */
+    private static int shortest(Indexer<?>[] indexers) {
+	int size = Integer.MAX_VALUE;
+	for (Indexer<?> indexer : indexers)
+	    size = Math.min(size, indexer.size());
+	return size;
+    }
+
+    private static Object[] getAll(Indexer<?>[] indexers, int index) {
+	Object[] result = new Object[indexers.length];
+	for (int i = 0; i < indexers.length; i++)
+	    result[i] = indexers[i].get(index);
+	return result;
+    }
+
+    /**
+     * @return a new iterator of every iterable, so that each iterator of a
+     * combinator reads its sources on its own.
+     */
+    private static Iterator<?>[] iterators(Iterable<?>[] iterables) {
+	Iterator<?>[] iterators = new Iterator<?>[iterables.length];
+	for (int i = 0; i < iterables.length; i++)
+	    iterators[i] = iterables[i] != null ? iterables[i].iterator() : Null;
+	return iterators;
+    }
+
+    /**
+     * Advances every iterator once, into args if given, otherwise into a new array.
+     */
+    private static Object[] nextAll(Iterator<?>[] iterators, Object[] args) {
+	Object[] result = args != null ? args : new Object[iterators.length];
+	for (int i = 0; i < iterators.length; i++)
+	    result[i] = iterators[i].next();
+	return result;
+    }
+    
+    public static boolean any(Object[] array, Lambda lambda) throws Exception {
+	for (Object obj : array) {
+	    if ((Boolean) lambda.process(obj) == false)
+		return true;
+	}
+	return false;
+    }
+
+    /**
+     * Hands the iterable to the JDK stream engine through its spliterator, which
+     * is sized and splits by index for a <code>range</code>, an
+     * <code>iterable(Object...)</code>, a <code>RandomAccess</code> list and the
+     * <code>map</code>, <code>zip</code>, <code>slice</code> or <code>iterate</code> of those.
+     *
+     * @param iterable.
+     * @return a sequential <code>Stream</code>.
+     */
+    public static Stream<Object> stream(Iterable<?> iterable) {
+	return stream(iterable, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Stream<Object> stream(Iterable<?> iterable, boolean parallel) {
+	return StreamSupport.stream((Spliterator<Object>) iterable.spliterator(),
+		parallel);
+    }
+
+    public static IntStream intStream(IntIterable iterable) {
+	return intStream(iterable, false);
+    }
+
+    public static IntStream intStream(IntIterable iterable, boolean parallel) {
+	return StreamSupport.intStream(iterable.spliterator(), parallel);
+    }
+
+    public static LongStream longStream(LongIterable iterable) {
+	return longStream(iterable, false);
+    }
+
+    public static LongStream longStream(LongIterable iterable, boolean parallel) {
+	return StreamSupport.longStream(iterable.spliterator(), parallel);
+    }
+
+    public static DoubleStream doubleStream(DoubleIterable iterable) {
+	return doubleStream(iterable, false);
+    }
+
+    public static DoubleStream doubleStream(DoubleIterable iterable,
+	    boolean parallel) {
+	return StreamSupport.doubleStream(iterable.spliterator(), parallel);
+    }
+
+    public static String str(Iterable<?> parts) {
+	return join(parts, ",");
+    }
+
+    public static String str(Object[] parts) {
+	return join(parts, ",");
+    }
+
+    /**
+     * The most elements the <code>toString()</code> of an iterable shows.
+     */
+    public final static int PREVIEW = 1000;
+
+    /**
+     * Joins at most the first limit elements of the iterable with commas,
+     * followed by <code>,...</code> if there are more, so that an endless
+     * iterable such as <code>count()</code> or <code>cycle(a)</code> can be
+     * printed.
+     *
+     * @param parts.
+     * @param limit, the most elements joined.
+     * @return a <code>String</code>.
+     */
+    public static String str(Iterable<?> parts, int limit) {
+	StringBuilder result = new StringBuilder();
+	Iterator<?> iterator = parts != null ? parts.iterator() : Null;
+	for (int i = 0; iterator.hasNext(); i++) {
+	    if (i > 0)
+		result.append(',');
+	    if (i == limit) {
+		result.append("...");
+		close(iterator);
+		break;
+	    }
+	    result.append(iterator.next());
+	}
+	return result.toString();
+    }
+
+    /**
+     * @return the <code>toString()</code> of the iterables of this package, the
+     * first <code>PREVIEW</code> elements in parentheses.
+     */
+    static String preview(Iterable<?> iterable) {
+	return "(" + str(iterable, PREVIEW) + ")";
+    }
+
+    /**
+     * Joins the elements of an iterable with a delimiter. When the exact size of
+     * the iterable is known, the elements are turned into strings first and the
+     * result is built in a buffer of the exact length, otherwise the buffer
+     * grows as it goes.
+     *
+     * @param parts.
+     * @param del, the delimiter.
+     * @return a <code>String</code>.
+     */
+    public static String join(Iterable<?> parts, String del) {
+	if (arraySize(parts) >= 0)
+	    return join(toArray(parts), del);
+	StringBuilder result = new StringBuilder();
+	try {
+	    joinTo(result, parts, del);
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+	return result.toString();
+    }
+
+    public static String join(Object[] parts, String del) {
+	long length = Math.max(parts.length - 1, 0) * (long) del.length();
+	String[] strings = new String[parts.length];
+	for (int i = 0; i < parts.length; i++) {
+	    strings[i] = String.valueOf(parts[i]);
+	    length += strings[i].length();
+	}
+	StringBuilder result = new StringBuilder((int) Math.min(length,
+		Integer.MAX_VALUE - 8));
+	for (int i = 0; i < strings.length; i++) {
+	    if (i > 0)
+		result.append(del);
+	    result.append(strings[i]);
+	}
+	return result.toString();
+    }
+
+    /**
+     * Writes the elements of an iterable, separated by a delimiter, straight to
+     * out, a <code>StringBuilder</code>, a <code>Writer</code> or any other
+     * <code>Appendable</code>, without building the whole string. The elements are
+     * read in batches, and an iterable that never ends never returns.
+     *
+     * @param out, the sink.
+     * @param parts.
+     * @param del, the delimiter.
+     * @return out.
+     */
+    public static <A extends Appendable> A joinTo(A out, Iterable<?> parts,
+	    String del) throws IOException {
+	Iterator<?> iterator = parts != null ? parts.iterator() : Null;
+	Object[] batch = new Object[batchSize(parts)];
+	boolean first = true;
+	int n;
+	while ((n = nextBatch(iterator, batch, batch.length)) > 0) {
+	    for (int i = 0; i < n; i++) {
+		if (first == false)
+		    out.append(del);
+		first = false;
+		out.append(String.valueOf(batch[i]));
+		batch[i] = null;
+	    }
+	}
+	return out;
+    }
+
+    /**
+     * The <code>joinTo</code> that encodes the text to a byte stream, through
+     * one buffer of characters and one of bytes. Out is flushed, but left open.
+     *
+     * @param out, the sink.
+     * @param parts.
+     * @param del, the delimiter.
+     * @param charset, the encoding of the text.
+     * @return out.
+     */
+    public static OutputStream joinTo(OutputStream out, Iterable<?> parts,
+	    String del, Charset charset) throws IOException {
+	Writer writer = new BufferedWriter(new OutputStreamWriter(out, charset));
+	joinTo(writer, parts, del);
+	writer.flush();
+	return out;
+    }
+
+    /**
+     * The most bytes <code>records</code> maps at a time, a record may not be longer.
+     */
+    public final static int MAP_WINDOW = 1 << 28;
+
+    /**
+     * Makes an Iterable whose iterator returns the records of a file, separated by
+     * delimiter, as read-only <code>ByteBuffer</code> views straight into a
+     * memory mapping of the file: nothing is copied and the heap does not grow with
+     * the file. The file is mapped a window of at most <code>MAP_WINDOW</code> bytes
+     * at a time, and no channel stays open between windows.
+     * A last record without a trailing delimiter is returned too.
+     *
+     * @param path, the file.
+     * @param delimiter, the byte ending each record, such as '\n'.
+     * @return an <code>Iterable</code> of <code>ByteBuffer</code>s.
+     *
+     * @see #chars(ByteBuffer)
+     */
+    public static Iterable<Object> records(final Path path, final byte delimiter) {
+	return buildObjectIterable(new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		return new BatchIterator<Object>() {
+		    long size = -1;
+		    long offset = 0;
+		    ByteBuffer window;
+		    ByteBuffer nextObj;
+
+		    public boolean hasNext() {
+			if (nextObj == null)
+			    nextObj = read();
+			return nextObj != null;
+		    }
+
+		    public Object next() {
+			if (hasNext() == false)
+			    throw new NoSuchElementException();
+			ByteBuffer record = nextObj;
+			nextObj = null;
+			return record;
+		    }
+
+		    public void remove() {
+		    }
+
+		    ByteBuffer read() {
+			if (size < 0) {
+			    size = map(0, MAP_WINDOW);
+			}
+			while (true) {
+			    int start = window.position();
+			    int limit = window.limit();
+			    for (int i = start; i < limit; i++) {
+				if (window.get(i) == delimiter) {
+				    window.position(i + 1);
+				    return slice(start, i);
+				}
+			    }
+			    if (offset + limit >= size) {
+				window.position(limit);
+				return start < limit ? slice(start, limit) : null;
+			    }
+			    if (start == 0 && limit >= Integer.MAX_VALUE / 2)
+				throw new IllegalStateException(
+					"record longer than 2GB in " + path);
+			    map(offset + start, Math.max(MAP_WINDOW,
+				    (limit - start) * 2L));
+			}
+		    }
+
+		    ByteBuffer slice(int start, int stop) {
+			ByteBuffer record = window.duplicate();
+			record.limit(stop);
+			record.position(start);
+			return record.slice();
+		    }
+
+		    /**
+		     * Maps length bytes from the given file offset, or up to the end.
+		     *
+		     * @return the size of the file.
+		     */
+		    long map(long from, long length) {
+			try {
+			    FileChannel channel = FileChannel.open(path,
+				    StandardOpenOption.READ);
+			    try {
+				long size = channel.size();
+				window = channel.map(FileChannel.MapMode.READ_ONLY,
+					from, Math.min(Math.min(length, size - from),
+						Integer.MAX_VALUE));
+				offset = from;
+				return size;
+			    } finally {
+				channel.close();
+			    }
+			} catch (IOException e) {
+			    throw new UncheckedIOException(e);
+			}
+		    }
+		};
+	    }
+	});
+    }
+
+    /**
+     * Makes an Iterable whose iterator returns the lines of a UTF-8 file as Strings,
+     * mapping the file rather than reading it into the heap.
+     *
+     * @param path, the file.
+     * @return an <code>Iterable</code> of Strings, without their line terminators.
+     *
+     * @see #records(Path, byte)
+     */
+    public static Iterable<Object> lines(Path path) {
+	return lines(path, StandardCharsets.UTF_8);
+    }
+
+    public static Iterable<Object> lines(final Path path, final Charset charset) {
+	return map(new Lambda1() {
+	    public Object process(Object arg) {
+		ByteBuffer record = (ByteBuffer) arg;
+		int length = record.remaining();
+		if (length > 0 && record.get(length - 1) == '\r')
+		    length--;
+		byte[] bytes = new byte[length];
+		record.get(bytes);
+		return new String(bytes, charset);
+	    }
+	}, records(path, (byte) '\n'));
+    }
+
+    /**
+     * A <code>CharSequence</code> over the bytes of a <code>ByteBuffer</code>, one char
+     * per byte (ISO-8859-1), so ASCII records can be searched and compared
+     * without decoding them.
+     */
+    public static class ByteChars implements CharSequence {
+	final ByteBuffer bytes;
+
+	public ByteChars(ByteBuffer bytes) {
+	    this.bytes = bytes;
+	}
+
+	public int length() {
+	    return bytes.remaining();
+	}
+
+	public char charAt(int index) {
+	    return (char) (bytes.get(bytes.position() + index) & 0xff);
+	}
+
+	public CharSequence subSequence(int start, int end) {
+	    ByteBuffer range = bytes.duplicate();
+	    range.limit(bytes.position() + end);
+	    range.position(bytes.position() + start);
+	    return new ByteChars(range.slice());
+	}
+
+	@Override
+	public String toString() {
+	    byte[] chars = new byte[bytes.remaining()];
+	    bytes.duplicate().get(chars);
+	    return new String(chars, StandardCharsets.ISO_8859_1);
+	}
+    }
+
+    public static CharSequence chars(ByteBuffer bytes) {
+	return new ByteChars(bytes);
+    }
+
+    /**
+     * Copies a file with <code>FileChannel.transferTo</code>, which lets the kernel
+     * move the bytes without them passing through the heap.
+     *
+     * @param source.
+     * @param target, created or truncated.
+     * @return the number of bytes copied.
+     */
+    public static long copy(Path source, Path target) throws IOException {
+	FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+	try {
+	    FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+		    StandardOpenOption.CREATE,
+		    StandardOpenOption.TRUNCATE_EXISTING);
+	    try {
+		long size = in.size();
+		long position = 0;
+		while (position < size)
+		    position += in.transferTo(position, size - position, out);
+		return position;
+	    } finally {
+		out.close();
+	    }
+	} finally {
+	    in.close();
+	}
+    }
+
+    /**
+     * Writes every record of the iterable to a file, each followed by delimiter.
+     * <code>ByteBuffer</code> records, such as the views made by <code>records</code>,
+     * are written as they are; anything else is written as its UTF-8
+     * <code>toString()</code>. Small records are gathered into one direct buffer.
+     *
+     * @param records.
+     * @param target, created or truncated.
+     * @param delimiter.
+     * @return the number of bytes written.
+     */
+    public static long write(Iterable<?> records, Path target, byte delimiter)
+	    throws IOException {
+	FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+		StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+	try {
+	    ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+	    long written = 0;
+	    for (Object record : records) {
+		ByteBuffer bytes = record instanceof ByteBuffer ? ((ByteBuffer) record)
+			.duplicate()
+			: record instanceof ByteChars ? ((ByteChars) record).bytes
+				.duplicate() : ByteBuffer.wrap(String.valueOf(
+				record).getBytes(StandardCharsets.UTF_8));
+		written += bytes.remaining() + 1;
+		if (bytes.remaining() >= buffer.remaining()) {
+		    flush(buffer, out);
+		    while (bytes.remaining() >= buffer.capacity())
+			out.write(bytes);
+		}
+		buffer.put(bytes);
+		if (buffer.hasRemaining() == false)
+		    flush(buffer, out);
+		buffer.put(delimiter);
+	    }
+	    flush(buffer, out);
+	    return written;
+	} finally {
+	    out.close();
+	}
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel out)
+	    throws IOException {
+	buffer.flip();
+	while (buffer.hasRemaining())
+	    out.write(buffer);
+	buffer.clear();
+    }
+
+    /**
+     * Reads the given iterable into a column of unboxed ints on the heap. The
+     * elements must be <code>Number</code>s, an <code>IntIterable</code> is read
+     * without boxing.
+     *
+     * @param iterable.
+     * @return an <code>IntColumn</code>, a sized and indexed <code>IntIterable</code>.
+     *
+     * @see Columns
+     */
+    public static Columns.IntColumn toInts(Iterable<?> iterable) {
+	return Columns.toInts(iterable, false);
+    }
+
+    /**
+     * The <code>toInts</code> that can keep the column off the heap, in a
+     * direct buffer the garbage collector does not scan or move.
+     *
+     * @param iterable.
+     * @param direct, true for a direct buffer.
+     * @return an <code>IntColumn</code>.
+     */
+    public static Columns.IntColumn toInts(Iterable<?> iterable, boolean direct) {
+	return Columns.toInts(iterable, direct);
+    }
+
+    /**
+     * Reads the given iterable into a column of unboxed longs on the heap. An
+     * <code>IntIterable</code> or <code>LongIterable</code> is read without boxing.
+     *
+     * @param iterable.
+     * @return a <code>LongColumn</code>.
+     *
+     * @see #toInts(Iterable)
+     */
+    public static Columns.LongColumn toLongs(Iterable<?> iterable) {
+	return Columns.toLongs(iterable, false);
+    }
+
+    public static Columns.LongColumn toLongs(Iterable<?> iterable,
+	    boolean direct) {
+	return Columns.toLongs(iterable, direct);
+    }
+
+    /**
+     * Reads the given iterable into a column of unboxed doubles on the heap.
+     *
+     * @param iterable.
+     * @return a <code>DoubleColumn</code>.
+     *
+     * @see #toInts(Iterable)
+     */
+    public static Columns.DoubleColumn toDoubles(Iterable<?> iterable) {
+	return Columns.toDoubles(iterable, false);
+    }
+
+    public static Columns.DoubleColumn toDoubles(Iterable<?> iterable,
+	    boolean direct) {
+	return Columns.toDoubles(iterable, direct);
+    }
+
+    /**
+     * Returns a column over the given ints, which it uses as its storage without
+     * copying them.
+     *
+     * @param  values, the ints.
+     * @return an <code>IntColumn</code>.
+     */
+    public static Columns.IntColumn ints(int... values) {
+	return Columns.wrap(values);
+    }
+
+    public static Columns.LongColumn longs(long... values) {
+	return Columns.wrap(values);
+    }
+
+    public static Columns.DoubleColumn doubles(double... values) {
+	return Columns.wrap(values);
+    }
+
+    /**
+     * Adds up the ints of the given iterable without boxing them, in a long so
+     * that the sum does not overflow. A column or an int array is summed in
+     * place with a loop the JIT vectorizes, a <code>range</code> arithmetically.
+     *
+     * @param  iterable, an <code>IntIterable</code>.
+     * @return the sum, 0 for an empty iterable.
+     *
+     * @see #ints(int...)
+     */
+    public static long sum(IntIterable iterable) {
+	return Reductions.sum(iterable);
+    }
+
+    public static long sum(LongIterable iterable) {
+	return Reductions.sum(iterable);
+    }
+
+    public static double sum(DoubleIterable iterable) {
+	return Reductions.sum(iterable);
+    }
+
+    /**
+     * The dot product of two iterables of ints, the sum of the products of
+     * their elements pairwise, stopping at the end of the shorter one like
+     * <code>zip</code>. The products are widened to long.
+     *
+     * @param  left, an <code>IntIterable</code>.
+     * @param  right, an <code>IntIterable</code>.
+     * @return the dot product.
+     */
+    public static long dot(IntIterable left, IntIterable right) {
+	return Reductions.dot(left, right);
+    }
+
+    public static long dot(LongIterable left, LongIterable right) {
+	return Reductions.dot(left, right);
+    }
+
+    public static double dot(DoubleIterable left, DoubleIterable right) {
+	return Reductions.dot(left, right);
+    }
+
+    /**
+     * @param  iterable, an <code>IntIterable</code>.
+     * @return the smallest of its ints.
+     * @throws NoSuchElementException if it is empty.
+     */
+    public static int min(IntIterable iterable) {
+	return Reductions.min(iterable);
+    }
+
+    public static long min(LongIterable iterable) {
+	return Reductions.min(iterable);
+    }
+
+    public static double min(DoubleIterable iterable) {
+	return Reductions.min(iterable);
+    }
+
+    /**
+     * @param  iterable, an <code>IntIterable</code>.
+     * @return the largest of its ints.
+     * @throws NoSuchElementException if it is empty.
+     */
+    public static int max(IntIterable iterable) {
+	return Reductions.max(iterable);
+    }
+
+    public static long max(LongIterable iterable) {
+	return Reductions.max(iterable);
+    }
+
+    public static double max(DoubleIterable iterable) {
+	return Reductions.max(iterable);
+    }
+
+    /**
+     * Counts the ints of the given iterable the predicate accepts, without
+     * boxing them.
+     *
+     * @param  predicate, an <code>IntPredicate</code>.
+     * @param  iterable, an <code>IntIterable</code>.
+     * @return the count.
+     */
+    public static long countWhere(IntPredicate predicate, IntIterable iterable) {
+	return Reductions.countWhere(predicate, iterable);
+    }
+
+    public static long countWhere(LongPredicate predicate,
+	    LongIterable iterable) {
+	return Reductions.countWhere(predicate, iterable);
+    }
+
+    public static long countWhere(DoublePredicate predicate,
+	    DoubleIterable iterable) {
+	return Reductions.countWhere(predicate, iterable);
+    }
+
+    public static Collection<Object> toCollection(Collection<Object> container,
+	    Object... elements) {
+	for (Object obj : elements)
+	    container.add(obj);
+	return container;
+    }
+
+    /**
+     * Adds the elements of the iterable to the container. An
+     * <code>ArrayList</code> is grown once, to fit them all, when the exact size of
+     * the iterable is known.
+     *
+     * @param container.
+     * @param iterable.
+     * @return container.
+     */
+    public static Collection<Object> toCollection(Collection<Object> container,
+	    Iterable<?> iterable) {
+	int size = arraySize(iterable);
+	if (size > 0 && container instanceof ArrayList)
+	    ((ArrayList<Object>) container).ensureCapacity(container.size()
+		    + size);
+	for (Object obj : iterable)
+	    container.add(obj);
+	return container;
+    }
+
+    /**
+     * Reads the elements of the iterable into an array, allocated once at its
+     * exact size when that is known.
+     *
+     * @param iterable.
+     * @return an <code>Object[]</code>.
+     */
+    public static Object[] toArray(Iterable<?> iterable) {
+	int size = arraySize(iterable);
+	if (size < 0)
+	    return toCollection(new ArrayList<Object>(), iterable).toArray();
+	Object[] array = new Object[size];
+	Iterator<?> iterator = iterable != null ? iterable.iterator() : Null;
+	int n = 0;
+	while (n < size && iterator.hasNext())
+	    array[n++] = iterator.next();
+	return n == size ? array : Arrays.copyOf(array, n);
+    }
+
+    public static void main(String[] args) throws IOException {
+
+	if (args.length == 2)
+	    System.out.println("copy(" + args[0] + ", " + args[1] + "): "
+		    + copy(Paths.get(args[0]), Paths.get(args[1])) + " bytes");
+
+	Collection<Object> a = toCollection(new ArrayList<Object>(), 1, 2, 3,
+		4, 5, 6, 3, 3, 10);
+	System.out
+		.println("Collection<Object> a = toCollection(new ArrayList<Object>(), 1,2,3,4,5,6,3,3,10): "
+			+ str(a));
+	Iterable<Integer> b = range(2, 10, 3);
+	System.out.println("Iterable<Integer> b = irange(2,10,3): " + b);
+	Iterable<Object> c = iterable(1, 2, 3, 4);
+	System.out.println("Iterable c = iterable(1,2,3): " + c);
+
+	Iterable<Object> d = iterable(new int[] { 1, 2, 3, 4 });
+	System.out.println("Iterable d = iterable(new Integer []{1,2,3,4}): "
+		+ c);
+
+	System.out.println("testing ienum(b): " + enumerate(c));
+
+	Iterator forever = repeat(4).iterator();
+	System.out.println("Iterable forever = repeat(4).iterator()");
+	System.out.println("testing forever.next(), forever.next(): "
+		+ forever.next() + "," + forever.next());
+
+	System.out.println("testing repeat(3, iterable(1,2,3)): "
+		+ repeat(3, iterable(1, 2, 3)));
+
+	System.out.println("testing repeat(3, iterable(iterable(1,2,3))): "
+		+ repeat(3, iterable(iterable(1, 2, 3))));
+	System.out.println("testing map(lambda x: x*10, b): "
+		+ map(new Lambda() {
+		    public Object process(Object... args) {
+			return ((Integer) args[0]) * 10;
+		    }
+		}, b));
+
+	System.out.println("testing map(lambda x,y: x*10+y, a, b): "
+		+ map(new Lambda() {
+		    public Object process(Object... args) {
+			return ((Integer) args[0]) * 10 + ((Integer) args[1]);
+		    }
+		}, a, b));
+
+	System.out.println("testing filter(lambda x: x%2==0, a): "
+		+ filter(new Lambda() {
+		    public Object process(Object... args) {
+			return ((Integer) args[0]) % 2 == 0 ? args[0] : null;
+		    }
+		}, a));
+
+	System.out.println("testing reduce(lambda x,y: x+y, a,0): "
+		+ reduce(new Lambda() {
+		    public Object process(Object... args) {
+		    	int x = (Integer) args[0];
+				int y = (Integer) args[1];
+			return x+y;
+		    }
+		}, iterable(1,2,3,4,5), 0));
+
+	System.out.println("testing slice(" + str(a) + "\n\t, 1,10,3): "
+		+ slice(a, 1, 10, 3));
+	System.out.println("testing slice(range(1000000000), 999999990, -1, 4): "
+		+ slice(range(1000000000), 999999990, -1, 4));
+	System.out.println("testing slice(iterate(10, count(0)), 3, -1, 2): "
+		+ slice(iterate(10, count(0)), 3, -1, 2));
+	System.out.println("testing chain(a,b): " + chain(a, b));
+	System.out.println("testing chain(a,b,a): " + chain(a, b, a));
+	System.out.println("testing product(iterable(\"a\",\"b\"), range(3)): "
+		+ product(iterable("a", "b"), range(3)));
+	System.out.println("testing permutations(range(3), 2): "
+		+ permutations(range(3), 2));
+	System.out.println("testing combinations(range(4), 2): "
+		+ combinations(range(4), 2));
+	System.out.println("testing combinations(range(40), 6).get(3000000): "
+		+ combinations(range(40), 6).get(3000000));
+	System.out.println("testing takewhile(lambda x: x<5, prefetch(count(0), 16)): "
+		+ takewhile(new Lambda() {
+		    public Object process(Object... args) {
+			return (Integer) args[0] < 5 ? args[0] : null;
+		    }
+		}, prefetch(count(0), 16)));
+	System.out.println("testing iterate(6, parallelMap(lambda x: x*10, count(0), 4)): "
+		+ iterate(6, parallelMap(new Lambda() {
+		    public Object process(Object... args) {
+			return ((Integer) args[0]) * 10;
+		    }
+		}, count(0), 4)));
+	System.out.println("testing merge(null, iterable(1,4,7), b, iterable(3,6,9)): "
+		+ merge(null, iterable(1, 4, 7), b, iterable(3, 6, 9)));
+	System.out.println("testing merge(range(0,10,3), range(1,10,3), range(2,10,3)): "
+		+ merge(range(0, 10, 3), range(1, 10, 3), range(2, 10, 3)));
+
+	System.out.println("testing toInts(range(0,10,3), true): "
+		+ toInts(range(0, 10, 3), true));
+	System.out.println("testing doubleStream(toDoubles(iterable(1.5,2,3L))).sum(): "
+		+ doubleStream(toDoubles(iterable(1.5, 2, 3L))).sum());
+
+	System.out.println("testing dot(ints(1,2,3,4), ints(4,5,6,7)): "
+		+ dot(ints(1, 2, 3, 4), ints(4, 5, 6, 7)));
+	System.out.println("testing sum(range(1000000)), max(range(0,100,7)): "
+		+ sum(range(1000000)) + ", " + max(range(0, 100, 7)));
+
+	System.out.println("testing str(cycle(b), 7): " + str(cycle(b), 7));
+	System.out.println("testing joinTo(new StringBuilder(), range(5), \" \"): "
+		+ joinTo(new StringBuilder(), range(5), " "));
+
+	System.out.println("testing windowed(range(6), 3, 2): "
+		+ windowed(range(6), 3, 2));
+	System.out.println("testing chunked(iterable(1,2,3,4,5), 2): "
+		+ chunked(iterable(1, 2, 3, 4, 5), 2));
+
+	System.out.println("testing sorted(iterable(3, 1, 2), null): "
+		+ sorted(iterable(3, 1, 2), null));
+
+	System.out.println("testing distinct(iterable(3, 1, 3, 2, 1)): "
+		+ distinct(iterable(3, 1, 3, 2, 1)));
+	System.out.println("testing uniqueJustSeen(iterable(1, 1, 2, 2, 2, 1)): "
+		+ uniqueJustSeen(iterable(1, 1, 2, 2, 2, 1)));
+
+	System.out.println("testing sizeBound(chain(a, iterate(5, count(0)))): "
+		+ sizeBound(chain(a, iterate(5, count(0)))) + ", exact "
+		+ isSizeExact(chain(a, iterate(5, count(0)))));
+
+	System.out.println("testing iterate(10, count(20)): "
+		+ iterate(10, count(20)));
+
+	System.out.println("testing iterate(10, cycle(b)): "
+		+ iterate(10, cycle(b)));
+
+	System.out.println("testing iterate(10, cycle(cached(iterable(1,2,3), 1))): "
+		+ iterate(10, cycle(cached(iterable(1, 2, 3), 1))));
+
+	System.out.println("testing all(lambda x: x==2, " + b + ": "
+		+ all(new Lambda() {
+		    public Object process(Object... args) {
+			return (Integer) args[0] == 2;
+		    }
+		}, b));
+
+	System.out.println("testing any(lambda x: x==2, " + b + ": "
+		+ any(new Lambda() {
+		    public Object process(Object... args) {
+			return (Integer) args[0] == 2;
+		    }
+		}, b));
+
+	System.out
+		.println("testing any(lambda x: x==2, repeat(10, iterable(1)): "
+			+ any(new Lambda() {
+			    public Object process(Object... args) {
+				return (Integer) args[0] == 2;
+			    }
+			}, repeat(10, iterable(1))));
+
+	System.out
+		.println("testing all(lambda x: x==1, repeat(10, iterable(1)): "
+			+ all(new Lambda() {
+			    public Object process(Object... args) {
+				return (Integer) args[0] == 2;
+			    }
+			}, repeat(10, iterable(1))));
+
+	System.out.println("testing zip(a,b,c): " + zip(a, b, c));
+
+	System.out.println("testing takewhile(lambda x: x< 4, a): "
+		+ takewhile(new Lambda() {
+		    public Object process(Object... args) {
+			return (Integer) args[0] < 4 ? args[0] : null;
+		    }
+		}, a));
+
+	System.out.println("testing dropwhile(lambda x: x< 4, a): "
+		+ dropwhile(new Lambda() {
+		    public Object process(Object... args) {
+			return (Integer) args[0] < 4;
+		    }
+		}, a));
+
+	System.out.println("testing dropwhile(lambda x: x< 4, iterable(1,2,3)): "
+		+ dropwhile(new Lambda() {
+		    public Object process(Object... args) {
+			return (Integer) args[0] < 4;
+		    }
+		}, iterable(1, 2, 3)));
+
+	System.out.println("testing pipeline(count(0)).filter(lambda x: x%2==0).map(lambda x: x*10).dropwhile(lambda x: x<30).iterate(5): "
+		+ pipeline(count(0)).filter(new Lambda() {
+		    public Object process(Object... args) {
+			return ((Integer) args[0]) % 2 == 0 ? args[0] : null;
+		    }
+		}).map(new Lambda() {
+		    public Object process(Object... args) {
+			return ((Integer) args[0]) * 10;
+		    }
+		}).dropwhile(new Lambda() {
+		    public Object process(Object... args) {
+			return (Integer) args[0] < 30;
+		    }
+		}).iterate(5));
+
+	System.out.println("testing parallel(range(1000)).filter(lambda x: x%2==0).map(lambda x: x*x).threshold(64).reduce(lambda x,y: x+y, 0): "
+		+ parallel(range(1000)).filter(new Lambda() {
+		    public Object process(Object... args) {
+			return ((Integer) args[0]) % 2 == 0 ? args[0] : null;
+		    }
+		}).map(new Lambda() {
+		    public Object process(Object... args) {
+			return ((Integer) args[0]) * ((Integer) args[0]);
+		    }
+		}).threshold(64).reduce(new Lambda() {
+		    public Object process(Object... args) {
+			return (Integer) args[0] + (Integer) args[1];
+		    }
+		}, 0));
+
+	System.out.println("testing parallel(range(1000000)).filter(lambda x: x>1 and x*x%9973==1).threshold(64).findFirst(): "
+		+ parallel(range(1000000)).filter(new Lambda() {
+		    public Object process(Object... args) {
+			int x = (Integer) args[0];
+			return (long) x * x % 9973 == 1 && x > 1 ? args[0] : null;
+		    }
+		}).threshold(64).findFirst());
+
+	System.out.println("testing intStream(range(1000), true).filter(x%2==0).map(x*x).sum(): "
+		+ intStream(range(1000), true).filter(new IntPredicate() {
+		    public boolean test(int x) {
+			return x % 2 == 0;
+		    }
+		}).map(new IntUnaryOperator() {
+		    public int applyAsInt(int x) {
+			return x * x;
+		    }
+		}).sum());
+
+	System.out.println("testing stream(zip(a, b)).count(): "
+		+ stream(zip(a, b)).count() + ", sized "
+		+ zip(a, b).spliterator().hasCharacteristics(Spliterator.SIZED));
+
+	Path log = Files.createTempFile("coffeegrains", ".log");
+	write(iterable("GET /", "POST /login", "GET /index.html", "GET /favicon.ico\r"), log, (byte) '\n');
+	System.out.println("testing filter(lambda x: x.startswith(\"GET\"), lines(log)): "
+		+ filter(new Lambda() {
+		    public Object process(Object... args) {
+			return ((String) args[0]).startsWith("GET") ? args[0] : null;
+		    }
+		}, lines(log)));
+	System.out.println("testing map(chars, records(log, '/')): "
+		+ map(new Lambda() {
+		    public Object process(Object... args) {
+			return chars((ByteBuffer) args[0]).length();
+		    }
+		}, records(log, (byte) '/')));
+	Files.delete(log);
+
+	Instrumentation.enable();
+	reduce(new Lambda() {
+	    public Object process(Object... args) {
+		return (Integer) args[0] + (Integer) args[1];
+	    }
+	}, filter(new Lambda() {
+	    public Object process(Object... args) {
+		return ((Integer) args[0]) % 2 == 0 ? args[0] : null;
+	    }
+	}, chain(a, b)), 0);
+	Instrumentation.disable();
+	System.out.println("testing Instrumentation.snapshot() after reduce(plus, filter(even, chain(a, b)), 0):");
+	for (Instrumentation.Stats stats : Instrumentation.snapshot())
+	    System.out.println("\t" + stats.name + ": in " + stats.in + ", out "
+		    + stats.out + ", calls " + stats.calls + ", exhausted "
+		    + stats.exhausted + "/" + stats.iterators);
+	Instrumentation.reset();
+
+	Iterable<Object>[] branches = tee(map(new Lambda() {
+	    public Object process(Object... args) {
+		return ((Integer) args[0]) * 10;
+	    }
+	}, a), 2);
+	System.out.println("testing tee(map(lambda x: x*10, a), 2): " + branches[0]
+		+ " " + branches[1]);
+
+	Object[] batch = new Object[4];
+	Iterator<Object> batches = chain(range(3), iterable("x", "y"), b).iterator();
+	System.out.print("testing nextBatch(chain(range(3), iterable(x,y), b), 4):");
+	for (int n; (n = nextBatch(batches, batch, 4)) > 0;)
+	    System.out.print(" (" + str(Arrays.copyOf(batch, n)) + ")");
+	System.out.println();
+
+	System.out.println("example enumerate = zip(count().iterator(), a): "
+		+ zip(count(0), a));
+
+	System.out.println("example dot product of (1,2,3,4) * (4,5,6,7): "
+		+ reduce(new Lambda() {
+		    public Object process(Object... args) {
+			return (Integer) args[0] + (Integer) args[1];
+		    }
+		}, map(new Lambda() {
+
+		    public Object process(Object... args) {
+			return (Integer) args[0] * (Integer) args[1];
+		    }
+		}, iterable(1, 2, 3, 4), iterable(4, 5, 6, 7)), 0));
+
+	System.out.println("example unboxed sum of squares of even numbers in range(10): "
+		+ reduce(new IntBinaryOperator() {
+		    public int applyAsInt(int x, int y) {
+			return x + y;
+		    }
+		}, mapInt(new IntUnaryOperator() {
+		    public int applyAsInt(int x) {
+			return x * x;
+		    }
+		}, filterInt(new IntPredicate() {
+		    public boolean test(int x) {
+			return x % 2 == 0;
+		    }
+		}, range(10))), 0));
+
+	System.out.println("testing range(4000000000L, 4000000003L): "
+		+ range(4000000000L, 4000000003L));
+
+	
+		
+    }
+
+}
@@ -0,0 +1,473 @@
+package com.syntazo.coffeegrains;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.syntazo.coffeegrains.Iteration.Indexer;
+import com.syntazo.coffeegrains.Iteration.Lambda;
+import com.syntazo.coffeegrains.Iteration.Lambda1;
+import com.syntazo.coffeegrains.Iteration.Lambda2;
+
+/**
+ * A fork/join evaluation of <code>map</code> and <code>filter</code> stages ending in a
+ * <code>reduce</code> or a <code>toList</code>. A source whose elements can be reached by
+ * position (a <code>range</code>, an <code>iterable(Object...)</code>, a
+ * <code>RandomAccess</code> list) is split into chunks of at least
+ * <code>threshold</code> elements, each chunk runs the stages and reduces on its own,
+ * and the chunk results are combined. Any other source, or one smaller than the
+ * threshold, is walked sequentially. The searches, <code>findFirst</code>,
+ * <code>findAny</code>, <code>any</code> and <code>all</code>, stop every chunk
+ * once their answer is known.
+ *
+ * The lambdas are called from several threads at once, so they must be thread
+ * safe, and the combiner of <code>reduce</code> must be associative.
+ * <pre>
+ * -----------------------------------------------------
+ * parallel(range(n)).map(square).parallelism(8).reduce(plus, 0)
+ * -----------------------------------------------------
+ * </pre>
+ *
+ * @see Iteration#parallel(Iterable)
+ */
+public class Parallel {
+    /**
+     * The default number of elements below which a chunk is not split further.
+     */
+    public final static int THRESHOLD = 1024;
+
+    final Iterable<?> source;
+    final Lambda[] lambdas;
+    final boolean[] filters;
+    final ForkJoinPool pool;
+    final int parallelism;
+    final int threshold;
+
+    Parallel(Iterable<?> source) {
+	this(source, new Lambda[0], new boolean[0], null, 0, THRESHOLD);
+    }
+
+    private Parallel(Iterable<?> source, Lambda[] lambdas, boolean[] filters,
+	    ForkJoinPool pool, int parallelism, int threshold) {
+	this.source = source;
+	this.lambdas = lambdas;
+	this.filters = filters;
+	this.pool = pool;
+	this.parallelism = parallelism;
+	this.threshold = threshold;
+    }
+
+    /**
+     * @see Iteration#map(com.syntazo.coffeegrains.Iteration.Lambda, Iterable...)
+     */
+    public Parallel map(Lambda lambda) {
+	return then(lambda, false);
+    }
+
+    /**
+     * @see Iteration#filter(com.syntazo.coffeegrains.Iteration.Lambda, Iterable)
+     */
+    public Parallel filter(Lambda predicate) {
+	return then(predicate, true);
+    }
+
+    /**
+     * Runs on the given pool instead of the common pool.
+     */
+    public Parallel pool(ForkJoinPool pool) {
+	return new Parallel(source, lambdas, filters, pool, parallelism,
+		threshold);
+    }
+
+    /**
+     * Runs on a pool of the given number of threads, created for each
+     * <code>reduce</code> or <code>toList</code> and shut down afterwards.
+     */
+    public Parallel parallelism(int parallelism) {
+	if (parallelism < 1)
+	    throw new IllegalArgumentException("parallelism " + parallelism);
+	return new Parallel(source, lambdas, filters, null, parallelism,
+		threshold);
+    }
+
+    /**
+     * Sets the number of elements below which a chunk runs sequentially.
+     */
+    public Parallel threshold(int threshold) {
+	if (threshold < 1)
+	    throw new IllegalArgumentException("threshold " + threshold);
+	return new Parallel(source, lambdas, filters, pool, parallelism,
+		threshold);
+    }
+
+    private Parallel then(Lambda lambda, boolean filter) {
+	int stages = lambdas.length;
+	Lambda[] lambdas = Arrays.copyOf(this.lambdas, stages + 1);
+	boolean[] filters = Arrays.copyOf(this.filters, stages + 1);
+	lambdas[stages] = lambda;
+	filters[stages] = filter;
+	return new Parallel(source, lambdas, filters, pool, parallelism,
+		threshold);
+    }
+
+    /**
+     * Reduces every chunk from identity with lambda, then combines the chunk
+     * results, left to right, with combiner.
+     *
+     * @param lambda, folds an element into a partial result.
+     * @param identity, the start value of every chunk.
+     * @param combiner, an associative Lambda merging two partial results.
+     * @return the reduced value.
+     */
+    public Object reduce(final Lambda lambda, final Object identity,
+	    final Lambda combiner) {
+	return fold(new Fold() {
+	    public Object start() {
+		return identity;
+	    }
+
+	    public Lambda2 adder() {
+		return Iteration.lambda2(lambda);
+	    }
+
+	    public Object combine(Object left, Object right) {
+		return Iteration.lambda2(combiner).process(left, right);
+	    }
+	});
+    }
+
+    /**
+     * Reduces with a lambda that also serves as the combiner, such as a sum.
+     *
+     * @see #reduce(com.syntazo.coffeegrains.Iteration.Lambda, Object, com.syntazo.coffeegrains.Iteration.Lambda)
+     */
+    public Object reduce(Lambda lambda, Object identity) {
+	return reduce(lambda, identity, lambda);
+    }
+
+    /**
+     * @return the elements that make it through the stages, in source order.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object> toList() {
+	return (List<Object>) fold(new Fold() {
+	    public Object start() {
+		return new ArrayList<Object>();
+	    }
+
+	    public Lambda2 adder() {
+		return new Lambda2() {
+		    public Object process(Object list, Object obj) {
+			((List<Object>) list).add(obj);
+			return list;
+		    }
+		};
+	    }
+
+	    public Object combine(Object left, Object right) {
+		((List<Object>) left).addAll((List<Object>) right);
+		return left;
+	    }
+	});
+    }
+
+    /**
+     * @return the first element, in source order, that makes it through the
+     * stages, or null if there is none. The chunks are searched in parallel,
+     * a chunk stops as soon as an element before it has been found, and the
+     * chunks past that element are not started.
+     */
+    public Object findFirst() {
+	Object found = search(null, true, true);
+	return found != NONE ? found : null;
+    }
+
+    /**
+     * @return any element that makes it through the stages, or null if there is
+     * none. The first one found on any thread ends the search of every chunk.
+     */
+    public Object findAny() {
+	Object found = search(null, true, false);
+	return found != NONE ? found : null;
+    }
+
+    /**
+     * Tests whether the predicate accepts, by returning non null as for
+     * <code>filter</code>, any element that makes it through the stages. The
+     * search stops on every thread once one is found.
+     *
+     * @param predicate, the test.
+     * @return true if an element is accepted.
+     */
+    public boolean any(Lambda predicate) {
+	return search(predicate, true, false) != NONE;
+    }
+
+    /**
+     * Tests whether the predicate accepts every element that makes it through
+     * the stages, stopping on every thread at the first one it rejects.
+     *
+     * @param predicate, the test.
+     * @return true if no element is rejected.
+     */
+    public boolean all(Lambda predicate) {
+	return search(predicate, false, false) == NONE;
+    }
+
+    /**
+     * What a search returns when no element matches, since null can be one.
+     */
+    final static Object NONE = new Object();
+
+    /**
+     * Looks for an element that makes it through the stages and, given a
+     * predicate, that the predicate accepts, or rejects if accept is false.
+     *
+     * @return the element, or NONE.
+     */
+    Object search(final Lambda predicate, final boolean accept,
+	    final boolean first) {
+	final Indexer<?> indexer = Iteration.indexer(source);
+	if (indexer == null || indexer.size() <= threshold) {
+	    Iterator<?> iterator = source != null ? source.iterator()
+		    : Iteration.Null;
+	    Object found = hunt(new Hunt(predicate, accept, first), iterator, 0);
+	    if (found != NONE)
+		Iteration.close(iterator);
+	    return found;
+	}
+	final Hunt hunt = new Hunt(predicate, accept, first);
+	return invoke(indexer.size(), new Task() {
+	    public RecursiveTask<Object> task(int chunk) {
+		return new Search(hunt, indexer, 0, indexer.size(), chunk);
+	    }
+	});
+    }
+
+    /**
+     * The state a search shares between its chunks. Bound is the index past
+     * which nothing needs looking at any more: it drops to the index of each
+     * element found when the first one is wanted, and to 0 as soon as any one
+     * will do, which stops every chunk.
+     */
+    static class Hunt {
+	final Lambda predicate;
+	final boolean accept;
+	final boolean first;
+	final AtomicLong bound = new AtomicLong(Long.MAX_VALUE);
+
+	Hunt(Lambda predicate, boolean accept, boolean first) {
+	    this.predicate = predicate;
+	    this.accept = accept;
+	    this.first = first;
+	}
+
+	void found(long index) {
+	    long bound;
+	    if (first == false)
+		index = 0;
+	    while (index < (bound = this.bound.get())
+		    && this.bound.compareAndSet(bound, index) == false)
+		;
+	}
+    }
+
+    class Search extends RecursiveTask<Object> {
+	private static final long serialVersionUID = 1L;
+	final Hunt hunt;
+	final Indexer<?> indexer;
+	final int start;
+	final int stop;
+	final int chunk;
+
+	Search(Hunt hunt, Indexer<?> indexer, int start, int stop, int chunk) {
+	    this.hunt = hunt;
+	    this.indexer = indexer;
+	    this.start = start;
+	    this.stop = stop;
+	    this.chunk = chunk;
+	}
+
+	@Override
+	protected Object compute() {
+	    if (start >= hunt.bound.get())
+		return NONE;
+	    if (stop - start <= chunk)
+		return hunt(hunt, new Iterator<Object>() {
+		    int index = start;
+
+		    public boolean hasNext() {
+			return index < stop;
+		    }
+
+		    public Object next() {
+			return indexer.get(index++);
+		    }
+
+		    public void remove() {
+		    }
+		}, start);
+	    /*
+	     * The left half runs on this thread and the right one is left to be
+	     * stolen, so the search starts at the front of the source, where
+	     * findFirst wants its answer.
+	     */
+	    int middle = (start + stop) >>> 1;
+	    Search right = new Search(hunt, indexer, middle, stop, chunk);
+	    right.fork();
+	    Object found = new Search(hunt, indexer, start, middle, chunk)
+		    .compute();
+	    if (found != NONE && right.tryUnfork())
+		return found;
+	    Object later = right.join();
+	    return found != NONE ? found : later;
+	}
+    }
+
+    /**
+     * Runs the stages over one chunk, whose first element has index start, until
+     * an element is found or the bound of the hunt drops to the index reached.
+     *
+     * @return the element found, or NONE.
+     */
+    Object hunt(Hunt hunt, Iterator<?> iterator, long start) {
+	Lambda1[] tests = new Lambda1[lambdas.length];
+	for (int s = 0; s < lambdas.length; s++)
+	    tests[s] = Iteration.lambda1(lambdas[s]);
+	Lambda1 predicate = hunt.predicate != null ? Iteration
+		.lambda1(hunt.predicate) : null;
+	next: for (long index = start; index < hunt.bound.get()
+		&& iterator.hasNext(); index++) {
+	    Object obj = iterator.next();
+	    for (int s = 0; s < tests.length; s++) {
+		obj = tests[s].process(obj);
+		if (obj == null && filters[s])
+		    continue next;
+	    }
+	    if (predicate != null
+		    && (predicate.process(obj) != null) != hunt.accept)
+		continue;
+	    hunt.found(index);
+	    return obj;
+	}
+	return NONE;
+    }
+
+    /**
+     * How the elements of a chunk are gathered into a partial result, and how
+     * partial results are merged.
+     */
+    static interface Fold {
+	public Object start();
+
+	public Lambda2 adder();
+
+	public Object combine(Object left, Object right);
+    }
+
+    Object fold(final Fold fold) {
+	final Indexer<?> indexer = Iteration.indexer(source);
+	if (indexer == null || indexer.size() <= threshold)
+	    return leaf(fold, source != null ? source.iterator()
+		    : Iteration.Null);
+	return invoke(indexer.size(), new Task() {
+	    public RecursiveTask<Object> task(int chunk) {
+		return new Chunk(fold, indexer, 0, indexer.size(), chunk);
+	    }
+	});
+    }
+
+    /**
+     * Makes the root task of a run once the chunk size is known.
+     */
+    static interface Task {
+	public RecursiveTask<Object> task(int chunk);
+    }
+
+    /**
+     * Runs the task over size elements on the pool of this Parallel, in chunks
+     * of about a quarter of size per thread.
+     */
+    Object invoke(int size, Task task) {
+	ForkJoinPool pool = this.pool;
+	if (pool == null && parallelism > 0)
+	    pool = new ForkJoinPool(parallelism);
+	try {
+	    ForkJoinPool runner = pool != null ? pool : ForkJoinPool
+		    .commonPool();
+	    int chunk = Math.max(threshold, size
+		    / (runner.getParallelism() * 4) + 1);
+	    return runner.invoke(task.task(chunk));
+	} finally {
+	    if (pool != null && pool != this.pool)
+		pool.shutdown();
+	}
+    }
+
+    class Chunk extends RecursiveTask<Object> {
+	private static final long serialVersionUID = 1L;
+	final Fold fold;
+	final Indexer<?> indexer;
+	final int start;
+	final int stop;
+	final int chunk;
+
+	Chunk(Fold fold, Indexer<?> indexer, int start, int stop, int chunk) {
+	    this.fold = fold;
+	    this.indexer = indexer;
+	    this.start = start;
+	    this.stop = stop;
+	    this.chunk = chunk;
+	}
+
+	@Override
+	protected Object compute() {
+	    if (stop - start <= chunk)
+		return leaf(fold, new Iterator<Object>() {
+		    int index = start;
+
+		    public boolean hasNext() {
+			return index < stop;
+		    }
+
+		    public Object next() {
+			return indexer.get(index++);
+		    }
+
+		    public void remove() {
+		    }
+		});
+	    int middle = (start + stop) >>> 1;
+	    Chunk left = new Chunk(fold, indexer, start, middle, chunk);
+	    left.fork();
+	    Object right = new Chunk(fold, indexer, middle, stop, chunk)
+		    .compute();
+	    return fold.combine(left.join(), right);
+	}
+    }
+
+    /**
+     * Runs the stages over one chunk, sequentially.
+     */
+    Object leaf(Fold fold, Iterator<?> iterator) {
+	Lambda1[] tests = new Lambda1[lambdas.length];
+	for (int s = 0; s < lambdas.length; s++)
+	    tests[s] = Iteration.lambda1(lambdas[s]);
+	Lambda2 adder = fold.adder();
+	Object result = fold.start();
+	next: while (iterator.hasNext()) {
+	    Object obj = iterator.next();
+	    for (int s = 0; s < tests.length; s++) {
+		obj = tests[s].process(obj);
+		if (obj == null && filters[s])
+		    continue next;
+	    }
+	    result = adder.process(result, obj);
+	}
+	return result;
+    }
+}
@@ -0,0 +1,139 @@
+package com.syntazo.coffeegrains;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import com.syntazo.coffeegrains.Iteration.BatchIterator;
+import com.syntazo.coffeegrains.Iteration.Lambda;
+import com.syntazo.coffeegrains.Iteration.Lambda1;
+import com.syntazo.coffeegrains.Iteration.LambdaN;
+import com.syntazo.coffeegrains.Iteration.SizedIterable;
+
+/**
+ * The iterable behind <code>Iteration.parallelMap</code> and
+ * <code>Iteration.unorderedMap</code>. Its iterator reads the source on the
+ * consumer's thread and submits one call of the lambda per element to the
+ * executor, keeping at most concurrency calls in flight, so an endless source
+ * is never read further than the window ahead of the consumer. The ordered
+ * flavour returns the results in source order, waiting for the oldest call,
+ * the unordered one returns whichever result is ready first.
+ *
+ * @see Iteration#parallelMap(Lambda, Iterable, int)
+ * @see Iteration#unorderedMap(Lambda, Iterable, int)
+ */
+class ParallelMap implements SizedIterable<Object> {
+    final Lambda lambda;
+    final Iterable<?> source;
+    final int concurrency;
+    final Executor executor;
+    final boolean ordered;
+
+    ParallelMap(Lambda lambda, Iterable<?> source, int concurrency,
+	    Executor executor, boolean ordered) {
+	this.lambda = lambda;
+	this.source = source;
+	this.concurrency = concurrency;
+	this.executor = executor;
+	this.ordered = ordered;
+    }
+
+    public Iterator<Object> iterator() {
+	return new BatchIterator<Object>() {
+	    final Iterator<?> iterator = source != null ? source.iterator()
+		    : Iteration.Null;
+	    /*
+	     * A LambdaN may reuse its args array, which calls on several
+	     * threads cannot share, so it gets a fresh one per call.
+	     */
+	    final Lambda1 function = lambda instanceof LambdaN ? new Lambda1() {
+		public Object process(Object arg) {
+		    return lambda.process(new Object[] { arg });
+		}
+	    } : Iteration.lambda1(lambda);
+	    final ArrayDeque<Future<Object>> window = new ArrayDeque<Future<Object>>();
+	    final ExecutorCompletionService<Object> completion = ordered ? null
+		    : new ExecutorCompletionService<Object>(executor);
+	    boolean closed = false;
+
+	    public boolean hasNext() {
+		while (closed == false && window.size() < concurrency
+			&& iterator.hasNext())
+		    submit(iterator.next());
+		return window.isEmpty() == false;
+	    }
+
+	    void submit(final Object obj) {
+		Callable<Object> call = new Callable<Object>() {
+		    public Object call() {
+			return function.process(obj);
+		    }
+		};
+		if (ordered) {
+		    FutureTask<Object> task = new FutureTask<Object>(call);
+		    executor.execute(task);
+		    window.add(task);
+		} else
+		    window.add(completion.submit(call));
+	    }
+
+	    public Object next() {
+		if (hasNext() == false)
+		    throw new NoSuchElementException();
+		try {
+		    Future<Object> done = ordered ? window.poll() : completion
+			    .take();
+		    if (ordered == false)
+			window.remove(done);
+		    return done.get();
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		    close();
+		    throw new IllegalStateException(
+			    "interrupted waiting on parallelMap", e);
+		} catch (ExecutionException e) {
+		    close();
+		    Throwable cause = e.getCause();
+		    if (cause instanceof RuntimeException)
+			throw (RuntimeException) cause;
+		    if (cause instanceof Error)
+			throw (Error) cause;
+		    throw new IllegalStateException(cause);
+		}
+	    }
+
+	    /**
+	     * Cancels the calls in flight and closes the source.
+	     */
+	    public void close() {
+		closed = true;
+		for (Future<Object> future : window)
+		    future.cancel(true);
+		window.clear();
+		Iteration.close(iterator);
+	    }
+
+	    public void remove() {
+	    }
+	};
+    }
+
+    public long sizeBound() {
+	return Iteration.sizeBound(source);
+    }
+
+    public boolean isSizeExact() {
+	return Iteration.isSizeExact(source);
+    }
+
+    @Override
+    public String toString() {
+	return Iteration.preview(this);
+    }
+}
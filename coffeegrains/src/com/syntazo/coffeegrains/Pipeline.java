@@ -0,0 +1,304 @@
+package com.syntazo.coffeegrains;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.syntazo.coffeegrains.Iteration.BatchIterator;
+import com.syntazo.coffeegrains.Iteration.Lambda;
+import com.syntazo.coffeegrains.Iteration.Lambda1;
+import com.syntazo.coffeegrains.Iteration.Lambda2;
+import com.syntazo.coffeegrains.Iteration.SizedIterable;
+
+/**
+ * A fluent builder over the stateless combinators of <code>Iteration</code>.
+ * Instead of stacking one <code>Iterator</code> per stage, the <code>map</code>,
+ * <code>filter</code>, <code>takewhile</code>, <code>dropwhile</code> and
+ * <code>iterate</code> stages of a pipeline are fused into one loop that takes
+ * an element from the source through every stage before reading the next one.
+ * Each stage behaves like the <code>Iteration</code> combinator of the same name.
+ *
+ * A <code>Pipeline</code> is immutable, every stage returns a new one, and it is an
+ * <code>Iterable</code> so it can be handed to any other combinator.
+ * <pre>
+ * -----------------------------------------------------
+ * pipeline(count(0)).filter(even).map(square).iterate(10).reduce(plus, 0)
+ * -----------------------------------------------------
+ * </pre>
+ *
+ * @see Iteration#pipeline(Iterable)
+ */
+public class Pipeline implements SizedIterable<Object> {
+    final static int MAP = 0;
+    final static int FILTER = 1;
+    final static int TAKEWHILE = 2;
+    final static int DROPWHILE = 3;
+    final static int ITERATE = 4;
+
+    /**
+     * Receives the elements pushed out of a pipeline, returning false stops the walk.
+     */
+    public static interface Sink {
+	public boolean accept(Object value);
+    }
+
+    final Iterable<?> source;
+    final int[] kinds;
+    final Lambda[] lambdas;
+    final int[] counts;
+
+    Pipeline(Iterable<?> source) {
+	this(source, new int[0], new Lambda[0], new int[0]);
+    }
+
+    private Pipeline(Iterable<?> source, int[] kinds, Lambda[] lambdas,
+	    int[] counts) {
+	this.source = source;
+	this.kinds = kinds;
+	this.lambdas = lambdas;
+	this.counts = counts;
+    }
+
+    /**
+     * @see Iteration#map(com.syntazo.coffeegrains.Iteration.Lambda, Iterable...)
+     */
+    public Pipeline map(Lambda lambda) {
+	return then(MAP, lambda, 0);
+    }
+
+    /**
+     * @see Iteration#filter(com.syntazo.coffeegrains.Iteration.Lambda, Iterable)
+     */
+    public Pipeline filter(Lambda predicate) {
+	return then(FILTER, predicate, 0);
+    }
+
+    /**
+     * @see Iteration#takewhile(com.syntazo.coffeegrains.Iteration.Lambda, Iterable)
+     */
+    public Pipeline takewhile(Lambda predicate) {
+	return then(TAKEWHILE, predicate, 0);
+    }
+
+    /**
+     * @see Iteration#dropwhile(com.syntazo.coffeegrains.Iteration.Lambda, Iterable)
+     */
+    public Pipeline dropwhile(Lambda predicate) {
+	return then(DROPWHILE, predicate, 0);
+    }
+
+    /**
+     * @see Iteration#iterate(int, Iterable)
+     */
+    public Pipeline iterate(int count) {
+	return then(ITERATE, null, count);
+    }
+
+    private Pipeline then(int kind, Lambda lambda, int count) {
+	int stages = kinds.length;
+	int[] kinds = Arrays.copyOf(this.kinds, stages + 1);
+	Lambda[] lambdas = Arrays.copyOf(this.lambdas, stages + 1);
+	int[] counts = Arrays.copyOf(this.counts, stages + 1);
+	kinds[stages] = kind;
+	lambdas[stages] = lambda;
+	counts[stages] = count;
+	return new Pipeline(source, kinds, lambdas, counts);
+    }
+
+    /**
+     * @return the size of the source, capped by the iterate stages.
+     */
+    public long sizeBound() {
+	long bound = Iteration.sizeBound(source);
+	for (int s = 0; s < kinds.length; s++)
+	    if (kinds[s] == ITERATE)
+		bound = Math.max(Math.min(bound, counts[s]), 0);
+	return bound;
+    }
+
+    /**
+     * @return true if the source has an exact size and every stage is a map or
+     * an iterate.
+     */
+    public boolean isSizeExact() {
+	if (Iteration.isSizeExact(source) == false)
+	    return sizeBound() == 0;
+	for (int kind : kinds)
+	    if (kind != MAP && kind != ITERATE)
+		return sizeBound() == 0;
+	return true;
+    }
+
+    public Iterator<Object> iterator() {
+	return new BatchIterator<Object>() {
+	    Object value;
+	    boolean ready = false;
+	    final Run run = new Run(new Sink() {
+		public boolean accept(Object obj) {
+		    value = obj;
+		    ready = true;
+		    return true;
+		}
+	    });
+
+	    public boolean hasNext() {
+		while (ready == false && run.done == false
+			&& run.iterator.hasNext()) {
+		    if (run.head.accept(run.iterator.next()) == false)
+			run.stop();
+		}
+		return ready;
+	    }
+
+	    public Object next() {
+		if (hasNext() == false)
+		    throw new NoSuchElementException();
+		ready = false;
+		return value;
+	    }
+
+	    /**
+	     * Stops the walk, closing the source.
+	     */
+	    public void close() {
+		ready = false;
+		value = null;
+		run.stop();
+	    }
+
+	    public void remove() {
+	    }
+	};
+    }
+
+    /**
+     * Walks the pipeline, pushing every element that makes it through all the
+     * stages into the sink until the source is exhausted or the sink returns false.
+     *
+     * @param sink.
+     */
+    public void push(Sink sink) {
+	new Run(sink).drain();
+    }
+
+    /**
+     * @see Iteration#reduce(com.syntazo.coffeegrains.Iteration.Lambda, Iterable, Object)
+     */
+    public Object reduce(Lambda lambda, final Object start) {
+	final Lambda2 lambda2 = Iteration.lambda2(lambda);
+	final Object[] result = { start };
+	new Run(new Sink() {
+	    public boolean accept(Object obj) {
+		result[0] = lambda2.process(result[0], obj);
+		return true;
+	    }
+	}).drain();
+	return result[0];
+    }
+
+    public Collection<Object> toCollection(final Collection<Object> container) {
+	new Run(new Sink() {
+	    public boolean accept(Object obj) {
+		container.add(obj);
+		return true;
+	    }
+	}).drain();
+	return container;
+    }
+
+    @Override
+    public String toString() {
+	return Iteration.preview(this);
+    }
+
+    /**
+     * One walk over the pipeline: the source iterator and the stages linked, last
+     * to first, into a chain of sinks that ends in the given one. The source loop
+     * makes one call per element, into the first stage.
+     */
+    class Run {
+	final Iterator<?> iterator = source != null ? source.iterator()
+		: Iteration.Null;
+	final Sink head;
+	boolean done = false;
+
+	Run(Sink sink) {
+	    for (int s = kinds.length - 1; s >= 0; s--) {
+		if (kinds[s] == ITERATE && counts[s] <= 0)
+		    done = true;
+		sink = link(kinds[s], lambdas[s] != null ? Iteration
+			.lambda1(lambdas[s]) : null, counts[s], sink);
+	    }
+	    head = sink;
+	    if (done)
+		Iteration.close(iterator);
+	}
+
+	void drain() {
+	    while (done == false && iterator.hasNext()) {
+		if (head.accept(iterator.next()) == false)
+		    stop();
+	    }
+	}
+
+	/**
+	 * Ends the walk before the source is exhausted, closing the source.
+	 */
+	void stop() {
+	    if (done == false) {
+		done = true;
+		Iteration.close(iterator);
+	    }
+	}
+
+	/**
+	 * @return a sink that runs one stage on each element and passes what it lets
+	 * through to downstream, returning false once nothing more can pass.
+	 */
+	Sink link(int kind, final Lambda1 test, final int count,
+		final Sink downstream) {
+	    switch (kind) {
+	    case MAP:
+		return new Sink() {
+		    public boolean accept(Object obj) {
+			return downstream.accept(test.process(obj));
+		    }
+		};
+	    case FILTER:
+		return new Sink() {
+		    public boolean accept(Object obj) {
+			obj = test.process(obj);
+			return obj == null || downstream.accept(obj);
+		    }
+		};
+	    case TAKEWHILE:
+		return new Sink() {
+		    public boolean accept(Object obj) {
+			obj = test.process(obj);
+			return obj != null && downstream.accept(obj);
+		    }
+		};
+	    case DROPWHILE:
+		return new Sink() {
+		    boolean dropping = true;
+
+		    public boolean accept(Object obj) {
+			if (dropping && (Boolean) test.process(obj))
+			    return true;
+			dropping = false;
+			return downstream.accept(obj);
+		    }
+		};
+	    default:
+		return new Sink() {
+		    int remaining = count;
+
+		    public boolean accept(Object obj) {
+			return downstream.accept(obj) && --remaining > 0;
+		    }
+		};
+	    }
+	}
+    }
+}
@@ -0,0 +1,226 @@
+package com.syntazo.coffeegrains;
+
+import java.lang.ref.Cleaner;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+import com.syntazo.coffeegrains.Iteration.BatchIterator;
+import com.syntazo.coffeegrains.Iteration.SizedIterable;
+
+/**
+ * The iterable behind <code>Iteration.prefetch</code>. Each iterator starts a
+ * producer thread that iterates the source and puts its elements into a queue
+ * of capacity slots, so that the source works ahead while the consumer handles
+ * what it has already read. An exception thrown by the source is rethrown to
+ * the consumer in order, after the elements that came before it.
+ *
+ * Closing the iterator, which <code>takewhile</code>, <code>any</code>,
+ * <code>all</code> and <code>iterate</code> do when they stop early, cancels the
+ * producer: it is interrupted, the queue is dropped and the source iterator is
+ * closed. An iterator that is dropped without being closed or exhausted is
+ * closed once it is garbage collected.
+ *
+ * @see Iteration#prefetch(Iterable, int)
+ */
+class Prefetch implements SizedIterable<Object> {
+    /**
+     * Virtual threads where the runtime has them, daemon threads otherwise.
+     */
+    final static ThreadFactory THREADS = threads();
+    final static Cleaner CLEANER = Cleaner.create();
+
+    final static Object END = new Object();
+    final static Object NULL = new Object();
+
+    final Iterable<?> source;
+    final int capacity;
+    final ThreadFactory threads;
+
+    Prefetch(Iterable<?> source, int capacity, ThreadFactory threads) {
+	this.source = source;
+	this.capacity = capacity;
+	this.threads = threads;
+    }
+
+    static ThreadFactory threads() {
+	try {
+	    Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+	    return (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+		    .getMethod("factory").invoke(builder);
+	} catch (ReflectiveOperationException e) {
+	    return new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+		    Thread thread = new Thread(runnable, "prefetch");
+		    thread.setDaemon(true);
+		    return thread;
+		}
+	    };
+	}
+    }
+
+    /**
+     * An exception thrown by the source, on its way to the consumer.
+     */
+    static class Failure {
+	final Throwable cause;
+
+	Failure(Throwable cause) {
+	    this.cause = cause;
+	}
+    }
+
+    /**
+     * The producer side of one iterator. It does not refer to the consumer, so
+     * the consumer can be collected and clean up after itself.
+     */
+    static class Producer implements Runnable {
+	final Iterable<?> source;
+	final BlockingQueue<Object> queue;
+	volatile boolean cancelled = false;
+	Thread thread;
+
+	Producer(Iterable<?> source, int capacity) {
+	    this.source = source;
+	    this.queue = new ArrayBlockingQueue<Object>(capacity);
+	}
+
+	public void run() {
+	    Iterator<?> iterator = Iteration.Null;
+	    try {
+		iterator = source != null ? source.iterator() : Iteration.Null;
+		while (cancelled == false && iterator.hasNext()) {
+		    Object obj = iterator.next();
+		    queue.put(obj != null ? obj : NULL);
+		}
+		queue.put(END);
+	    } catch (InterruptedException e) {
+		// cancelled
+	    } catch (Throwable e) {
+		try {
+		    if (cancelled == false)
+			queue.put(new Failure(e));
+		} catch (InterruptedException cancelled) {
+		}
+	    } finally {
+		Iteration.close(iterator);
+	    }
+	}
+
+	void cancel() {
+	    cancelled = true;
+	    thread.interrupt();
+	    queue.clear();
+	}
+    }
+
+    public Iterator<Object> iterator() {
+	Producer producer = new Producer(source, capacity);
+	producer.thread = threads.newThread(producer);
+	producer.thread.start();
+	return new Reader(producer);
+    }
+
+    /**
+     * The consumer side of one iterator, which cancels its producer when closed,
+     * exhausted or collected.
+     */
+    static class Reader implements BatchIterator<Object> {
+	final Producer producer;
+	final Cleaner.Cleanable cleanable;
+	Object head;
+	boolean closed = false;
+
+	Reader(Producer producer) {
+	    this.producer = producer;
+	    this.cleanable = CLEANER.register(this, canceller(producer));
+	}
+
+	/**
+	 * @return the clean up action, made here so that it does not hold on to
+	 * the reader.
+	 */
+	static Runnable canceller(final Producer producer) {
+	    return new Runnable() {
+		public void run() {
+		    producer.cancel();
+		}
+	    };
+	}
+
+	public boolean hasNext() {
+	    if (head == null && closed == false) {
+		try {
+		    head = producer.queue.take();
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		    close();
+		    throw new IllegalStateException(
+			    "interrupted waiting on prefetch", e);
+		}
+	    }
+	    if (head instanceof Failure) {
+		Throwable cause = ((Failure) head).cause;
+		head = END;
+		close();
+		if (cause instanceof RuntimeException)
+		    throw (RuntimeException) cause;
+		if (cause instanceof Error)
+		    throw (Error) cause;
+		throw new IllegalStateException(cause);
+	    }
+	    if (head == END)
+		close();
+	    return head != null && head != END;
+	}
+
+	public Object next() {
+	    if (hasNext() == false)
+		throw new NoSuchElementException();
+	    Object obj = head;
+	    head = null;
+	    return obj != NULL ? obj : null;
+	}
+
+	/**
+	 * Takes the first element, waiting if need be, then whatever else the
+	 * producer has already queued.
+	 */
+	public int nextBatch(Object[] buffer, int max) {
+	    int n = 0;
+	    if (max <= 0 || hasNext() == false)
+		return 0;
+	    buffer[n++] = next();
+	    while (n < max && (head = producer.queue.poll()) != null) {
+		if (head == END || head instanceof Failure)
+		    break;
+		buffer[n++] = head != NULL ? head : null;
+		head = null;
+	    }
+	    return n;
+	}
+
+	public void close() {
+	    closed = true;
+	    cleanable.clean();
+	}
+
+	public void remove() {
+	}
+    }
+
+    public long sizeBound() {
+	return Iteration.sizeBound(source);
+    }
+
+    public boolean isSizeExact() {
+	return Iteration.isSizeExact(source);
+    }
+
+    @Override
+    public String toString() {
+	return Iteration.preview(this);
+    }
+}
@@ -0,0 +1,472 @@
+package com.syntazo.coffeegrains;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+
+import com.syntazo.coffeegrains.Columns.DoubleColumn;
+import com.syntazo.coffeegrains.Columns.IntColumn;
+import com.syntazo.coffeegrains.Columns.LongColumn;
+import com.syntazo.coffeegrains.Iteration.DoubleIterable;
+import com.syntazo.coffeegrains.Iteration.IntIterable;
+import com.syntazo.coffeegrains.Iteration.IntRange;
+import com.syntazo.coffeegrains.Iteration.LongIterable;
+
+/**
+ * The numeric reductions behind <code>Iteration.sum</code>, <code>dot</code>,
+ * <code>min</code>, <code>max</code> and <code>countWhere</code>. The source is
+ * walked as runs of a primitive array, the backing array of a heap column in
+ * place and anything else copied a batch at a time, and each run goes through
+ * a plain counted loop over the array, the shape the JIT unrolls and compiles
+ * to SIMD instructions. Hand unrolling these loops only gets in its way. A
+ * <code>range</code> is summed and bounded arithmetically.
+ *
+ * @see Iteration#sum(IntIterable)
+ * @see Iteration#dot(IntIterable, IntIterable)
+ */
+class Reductions {
+    /**
+     * Reads an <code>IntIterable</code> as consecutive runs of an array: the backing
+     * array of a heap column in place, anything else copied in batches.
+     */
+    static class IntChunks {
+	final PrimitiveIterator.OfInt iterator;
+	final IntBuffer view;
+	int[] array;
+	int from = 0;
+	int to = 0;
+	int end = 0;
+
+	IntChunks(IntIterable iterable) {
+	    IntBuffer data = iterable instanceof IntColumn ? ((IntColumn) iterable).data
+		    : null;
+	    if (data != null && data.hasArray()) {
+		iterator = null;
+		view = null;
+		array = data.array();
+		from = to = data.arrayOffset();
+		end = from + data.limit();
+	    } else {
+		iterator = data != null ? null : iterable.iterator();
+		view = data != null ? data.duplicate() : null;
+		array = new int[Iteration.batchSize(iterable)];
+	    }
+	}
+
+	/**
+	 * Moves on to the next run, array[from] up to array[to].
+	 *
+	 * @return its length, at most max, 0 once the iterable is exhausted.
+	 */
+	int next(int max) {
+	    if (iterator == null && view == null) {
+		from = to;
+		to = from + Math.min(max, end - from);
+	    } else {
+		from = 0;
+		to = Math.min(max, array.length);
+		if (view != null) {
+		    to = Math.min(to, view.remaining());
+		    view.get(array, 0, to);
+		} else
+		    to = Iteration.nextBatch(iterator, array, to);
+	    }
+	    return to - from;
+	}
+
+	void close() {
+	    if (iterator != null)
+		Iteration.close(iterator);
+	}
+    }
+
+    /**
+     * Reads a <code>LongIterable</code> as consecutive runs of an array: the backing
+     * array of a heap column in place, anything else copied in batches.
+     */
+    static class LongChunks {
+	final PrimitiveIterator.OfLong iterator;
+	final LongBuffer view;
+	long[] array;
+	int from = 0;
+	int to = 0;
+	int end = 0;
+
+	LongChunks(LongIterable iterable) {
+	    LongBuffer data = iterable instanceof LongColumn ? ((LongColumn) iterable).data
+		    : null;
+	    if (data != null && data.hasArray()) {
+		iterator = null;
+		view = null;
+		array = data.array();
+		from = to = data.arrayOffset();
+		end = from + data.limit();
+	    } else {
+		iterator = data != null ? null : iterable.iterator();
+		view = data != null ? data.duplicate() : null;
+		array = new long[Iteration.batchSize(iterable)];
+	    }
+	}
+
+	/**
+	 * Moves on to the next run, array[from] up to array[to].
+	 *
+	 * @return its length, at most max, 0 once the iterable is exhausted.
+	 */
+	int next(int max) {
+	    if (iterator == null && view == null) {
+		from = to;
+		to = from + Math.min(max, end - from);
+	    } else {
+		from = 0;
+		to = Math.min(max, array.length);
+		if (view != null) {
+		    to = Math.min(to, view.remaining());
+		    view.get(array, 0, to);
+		} else
+		    to = Iteration.nextBatch(iterator, array, to);
+	    }
+	    return to - from;
+	}
+
+	void close() {
+	    if (iterator != null)
+		Iteration.close(iterator);
+	}
+    }
+
+    /**
+     * Reads a <code>DoubleIterable</code> as consecutive runs of an array: the backing
+     * array of a heap column in place, anything else copied in batches.
+     */
+    static class DoubleChunks {
+	final PrimitiveIterator.OfDouble iterator;
+	final DoubleBuffer view;
+	double[] array;
+	int from = 0;
+	int to = 0;
+	int end = 0;
+
+	DoubleChunks(DoubleIterable iterable) {
+	    DoubleBuffer data = iterable instanceof DoubleColumn ? ((DoubleColumn) iterable).data
+		    : null;
+	    if (data != null && data.hasArray()) {
+		iterator = null;
+		view = null;
+		array = data.array();
+		from = to = data.arrayOffset();
+		end = from + data.limit();
+	    } else {
+		iterator = data != null ? null : iterable.iterator();
+		view = data != null ? data.duplicate() : null;
+		array = new double[Iteration.batchSize(iterable)];
+	    }
+	}
+
+	/**
+	 * Moves on to the next run, array[from] up to array[to].
+	 *
+	 * @return its length, at most max, 0 once the iterable is exhausted.
+	 */
+	int next(int max) {
+	    if (iterator == null && view == null) {
+		from = to;
+		to = from + Math.min(max, end - from);
+	    } else {
+		from = 0;
+		to = Math.min(max, array.length);
+		if (view != null) {
+		    to = Math.min(to, view.remaining());
+		    view.get(array, 0, to);
+		} else
+		    for (int i = 0; i < to; i++) {
+			if (iterator.hasNext() == false) {
+			    to = i;
+			    break;
+			}
+			array[i] = iterator.nextDouble();
+		    }
+	    }
+	    return to - from;
+	}
+
+	void close() {
+	    if (iterator != null)
+		Iteration.close(iterator);
+	}
+    }
+
+    static long sum(IntIterable iterable) {
+	if (iterable instanceof IntRange && ((IntRange) iterable).step > 0) {
+	    IntRange range = (IntRange) iterable;
+	    long n = range.length();
+	    long ends = n == 0 ? 0 : 2L * range.start + (n - 1) * range.step;
+	    return n % 2 == 0 ? n / 2 * ends : ends / 2 * n;
+	}
+	IntChunks chunks = new IntChunks(iterable);
+	long sum = 0;
+	while (chunks.next(Integer.MAX_VALUE) > 0)
+	    sum += sum(chunks.array, chunks.from, chunks.to);
+	return sum;
+    }
+
+    static long dot(IntIterable left, IntIterable right) {
+	IntChunks a = new IntChunks(left);
+	IntChunks b = new IntChunks(right);
+	long dot = 0;
+	while (a.next(Integer.MAX_VALUE) > 0) {
+	    while (a.from < a.to) {
+		int n = b.next(a.to - a.from);
+		if (n == 0) {
+		    a.close();
+		    return dot;
+		}
+		dot += dot(a.array, a.from, b.array, b.from, n);
+		a.from += n;
+	    }
+	}
+	b.close();
+	return dot;
+    }
+
+    static int min(IntIterable iterable) {
+	if (iterable instanceof IntRange && ((IntRange) iterable).step > 0
+		&& ((IntRange) iterable).length() > 0)
+	    return ((IntRange) iterable).start;
+	IntChunks chunks = new IntChunks(iterable);
+	if (chunks.next(Integer.MAX_VALUE) == 0)
+	    throw new NoSuchElementException("min of nothing");
+	int min = chunks.array[chunks.from];
+	do
+	    min = min(chunks.array, chunks.from, chunks.to, min);
+	while (chunks.next(Integer.MAX_VALUE) > 0);
+	return min;
+    }
+
+    static int max(IntIterable iterable) {
+	if (iterable instanceof IntRange && ((IntRange) iterable).step > 0
+		&& ((IntRange) iterable).length() > 0) {
+	    IntRange range = (IntRange) iterable;
+	    return (int) (range.start + (range.length() - 1) * range.step);
+	}
+	IntChunks chunks = new IntChunks(iterable);
+	if (chunks.next(Integer.MAX_VALUE) == 0)
+	    throw new NoSuchElementException("max of nothing");
+	int max = chunks.array[chunks.from];
+	do
+	    max = max(chunks.array, chunks.from, chunks.to, max);
+	while (chunks.next(Integer.MAX_VALUE) > 0);
+	return max;
+    }
+
+    static long countWhere(IntPredicate predicate, IntIterable iterable) {
+	IntChunks chunks = new IntChunks(iterable);
+	long count = 0;
+	while (chunks.next(Integer.MAX_VALUE) > 0)
+	    for (int i = chunks.from; i < chunks.to; i++)
+		if (predicate.test(chunks.array[i]))
+		    count++;
+	return count;
+    }
+
+    static long sum(int[] array, int from, int to) {
+	long sum = 0;
+	for (int i = from; i < to; i++)
+	    sum += array[i];
+	return sum;
+    }
+
+    static long dot(int[] a, int af, int[] b, int bf, int n) {
+	long dot = 0;
+	for (int i = 0; i < n; i++)
+	    dot += (long) a[af + i] * b[bf + i];
+	return dot;
+    }
+
+    static int min(int[] array, int from, int to, int min) {
+	for (int i = from; i < to; i++)
+	    min = Math.min(min, array[i]);
+	return min;
+    }
+
+    static int max(int[] array, int from, int to, int max) {
+	for (int i = from; i < to; i++)
+	    max = Math.max(max, array[i]);
+	return max;
+    }
+
+    static long sum(LongIterable iterable) {
+	LongChunks chunks = new LongChunks(iterable);
+	long sum = 0;
+	while (chunks.next(Integer.MAX_VALUE) > 0)
+	    sum += sum(chunks.array, chunks.from, chunks.to);
+	return sum;
+    }
+
+    static long dot(LongIterable left, LongIterable right) {
+	LongChunks a = new LongChunks(left);
+	LongChunks b = new LongChunks(right);
+	long dot = 0;
+	while (a.next(Integer.MAX_VALUE) > 0) {
+	    while (a.from < a.to) {
+		int n = b.next(a.to - a.from);
+		if (n == 0) {
+		    a.close();
+		    return dot;
+		}
+		dot += dot(a.array, a.from, b.array, b.from, n);
+		a.from += n;
+	    }
+	}
+	b.close();
+	return dot;
+    }
+
+    static long min(LongIterable iterable) {
+	LongChunks chunks = new LongChunks(iterable);
+	if (chunks.next(Integer.MAX_VALUE) == 0)
+	    throw new NoSuchElementException("min of nothing");
+	long min = chunks.array[chunks.from];
+	do
+	    min = min(chunks.array, chunks.from, chunks.to, min);
+	while (chunks.next(Integer.MAX_VALUE) > 0);
+	return min;
+    }
+
+    static long max(LongIterable iterable) {
+	LongChunks chunks = new LongChunks(iterable);
+	if (chunks.next(Integer.MAX_VALUE) == 0)
+	    throw new NoSuchElementException("max of nothing");
+	long max = chunks.array[chunks.from];
+	do
+	    max = max(chunks.array, chunks.from, chunks.to, max);
+	while (chunks.next(Integer.MAX_VALUE) > 0);
+	return max;
+    }
+
+    static long countWhere(LongPredicate predicate, LongIterable iterable) {
+	LongChunks chunks = new LongChunks(iterable);
+	long count = 0;
+	while (chunks.next(Integer.MAX_VALUE) > 0)
+	    for (int i = chunks.from; i < chunks.to; i++)
+		if (predicate.test(chunks.array[i]))
+		    count++;
+	return count;
+    }
+
+    static long sum(long[] array, int from, int to) {
+	long sum = 0;
+	for (int i = from; i < to; i++)
+	    sum += array[i];
+	return sum;
+    }
+
+    static long dot(long[] a, int af, long[] b, int bf, int n) {
+	long dot = 0;
+	for (int i = 0; i < n; i++)
+	    dot += a[af + i] * b[bf + i];
+	return dot;
+    }
+
+    static long min(long[] array, int from, int to, long min) {
+	for (int i = from; i < to; i++)
+	    min = Math.min(min, array[i]);
+	return min;
+    }
+
+    static long max(long[] array, int from, int to, long max) {
+	for (int i = from; i < to; i++)
+	    max = Math.max(max, array[i]);
+	return max;
+    }
+
+    static double sum(DoubleIterable iterable) {
+	DoubleChunks chunks = new DoubleChunks(iterable);
+	double sum = 0;
+	while (chunks.next(Integer.MAX_VALUE) > 0)
+	    sum += sum(chunks.array, chunks.from, chunks.to);
+	return sum;
+    }
+
+    static double dot(DoubleIterable left, DoubleIterable right) {
+	DoubleChunks a = new DoubleChunks(left);
+	DoubleChunks b = new DoubleChunks(right);
+	double dot = 0;
+	while (a.next(Integer.MAX_VALUE) > 0) {
+	    while (a.from < a.to) {
+		int n = b.next(a.to - a.from);
+		if (n == 0) {
+		    a.close();
+		    return dot;
+		}
+		dot += dot(a.array, a.from, b.array, b.from, n);
+		a.from += n;
+	    }
+	}
+	b.close();
+	return dot;
+    }
+
+    static double min(DoubleIterable iterable) {
+	DoubleChunks chunks = new DoubleChunks(iterable);
+	if (chunks.next(Integer.MAX_VALUE) == 0)
+	    throw new NoSuchElementException("min of nothing");
+	double min = chunks.array[chunks.from];
+	do
+	    min = min(chunks.array, chunks.from, chunks.to, min);
+	while (chunks.next(Integer.MAX_VALUE) > 0);
+	return min;
+    }
+
+    static double max(DoubleIterable iterable) {
+	DoubleChunks chunks = new DoubleChunks(iterable);
+	if (chunks.next(Integer.MAX_VALUE) == 0)
+	    throw new NoSuchElementException("max of nothing");
+	double max = chunks.array[chunks.from];
+	do
+	    max = max(chunks.array, chunks.from, chunks.to, max);
+	while (chunks.next(Integer.MAX_VALUE) > 0);
+	return max;
+    }
+
+    static long countWhere(DoublePredicate predicate, DoubleIterable iterable) {
+	DoubleChunks chunks = new DoubleChunks(iterable);
+	long count = 0;
+	while (chunks.next(Integer.MAX_VALUE) > 0)
+	    for (int i = chunks.from; i < chunks.to; i++)
+		if (predicate.test(chunks.array[i]))
+		    count++;
+	return count;
+    }
+
+    static double sum(double[] array, int from, int to) {
+	double sum = 0;
+	for (int i = from; i < to; i++)
+	    sum += array[i];
+	return sum;
+    }
+
+    static double dot(double[] a, int af, double[] b, int bf, int n) {
+	double dot = 0;
+	for (int i = 0; i < n; i++)
+	    dot += a[af + i] * b[bf + i];
+	return dot;
+    }
+
+    static double min(double[] array, int from, int to, double min) {
+	for (int i = from; i < to; i++)
+	    min = Math.min(min, array[i]);
+	return min;
+    }
+
+    static double max(double[] array, int from, int to, double max) {
+	for (int i = from; i < to; i++)
+	    max = Math.max(max, array[i]);
+	return max;
+    }
+}
@@ -0,0 +1,224 @@
+package com.syntazo.coffeegrains;
+
+import com.syntazo.coffeegrains.Iteration.SizedIterable;
+
+/**
+ * How the size of a combinator follows from the sizes of its sources. It is
+ * worked out each time it is asked for, since a source such as a list may
+ * change between iterations. Sizes add up and multiply without overflowing,
+ * they stop at <code>Iteration.UNBOUNDED</code>, which with an exact size means
+ * endless and otherwise unknown.
+ *
+ * @see SizedIterable
+ */
+abstract class Size {
+    /**
+     * @return the most elements an iterator will return.
+     */
+    abstract long bound();
+
+    /**
+     * @return true if an iterator returns exactly bound elements.
+     */
+    abstract boolean exact();
+
+    final static Size UNKNOWN = new Size() {
+	long bound() {
+	    return Iteration.UNBOUNDED;
+	}
+
+	boolean exact() {
+	    return false;
+	}
+    };
+
+    final static Size ENDLESS = exactly(Iteration.UNBOUNDED);
+
+    static Size exactly(final long size) {
+	return new Size() {
+	    long bound() {
+		return size;
+	    }
+
+	    boolean exact() {
+		return true;
+	    }
+	};
+    }
+
+    /**
+     * @return the size of the source, for a combinator that returns one element
+     * for each of its elements.
+     */
+    static Size of(final Iterable<?> source) {
+	return new Size() {
+	    long bound() {
+		return Iteration.sizeBound(source);
+	    }
+
+	    boolean exact() {
+		return Iteration.isSizeExact(source);
+	    }
+	};
+    }
+
+    /**
+     * @return at most the size of the source, for a combinator that drops some of
+     * its elements.
+     */
+    static Size atMost(final Iterable<?> source) {
+	return new Size() {
+	    long bound() {
+		return Iteration.sizeBound(source);
+	    }
+
+	    boolean exact() {
+		return Iteration.sizeBound(source) == 0;
+	    }
+	};
+    }
+
+    /**
+     * @return the size of the shortest source, for <code>map</code> and
+     * <code>zip</code>.
+     */
+    static Size shortest(final Iterable<?>... sources) {
+	return new Size() {
+	    long bound() {
+		long bound = Iteration.UNBOUNDED;
+		for (Iterable<?> source : sources)
+		    bound = Math.min(bound, Iteration.sizeBound(source));
+		return bound;
+	    }
+
+	    boolean exact() {
+		for (Iterable<?> source : sources)
+		    if (Iteration.isSizeExact(source) == false)
+			return bound() == 0;
+		return true;
+	    }
+	};
+    }
+
+    /**
+     * @return the sizes of the sources added up, for <code>chain</code> and
+     * <code>merge</code>.
+     */
+    static Size total(final Iterable<?>... sources) {
+	return new Size() {
+	    long bound() {
+		long bound = 0;
+		for (Iterable<?> source : sources)
+		    bound = plus(bound, Iteration.sizeBound(source));
+		return bound;
+	    }
+
+	    boolean exact() {
+		for (Iterable<?> source : sources)
+		    if (Iteration.isSizeExact(source) == false)
+			return false;
+		return true;
+	    }
+	};
+    }
+
+    /**
+     * @return the size of the first count elements of the source, for
+     * <code>iterate</code>.
+     */
+    static Size first(final long count, final Iterable<?> source) {
+	return new Size() {
+	    long bound() {
+		return Math.max(Math.min(count, Iteration.sizeBound(source)), 0);
+	    }
+
+	    boolean exact() {
+		return count <= 0 || Iteration.isSizeExact(source);
+	    }
+	};
+    }
+
+    /**
+     * @return the size of <code>slice(source, start, stop, step)</code>.
+     */
+    static Size slice(final Iterable<?> source, final int start,
+	    final int stop, final int step) {
+	return new Size() {
+	    long bound() {
+		long size = Iteration.sizeBound(source);
+		if (size == Iteration.UNBOUNDED && stop < 0)
+		    return size;
+		long end = stop < 0 ? size : Math.min(stop, size);
+		return end <= start ? 0 : (end - start + step - 1) / step;
+	    }
+
+	    boolean exact() {
+		return Iteration.isSizeExact(source) || bound() == 0;
+	    }
+	};
+    }
+
+    /**
+     * @return the size of <code>cycle(source)</code>: endless, unless the source
+     * is empty.
+     */
+    static Size cycle(final Iterable<?> source) {
+	return new Size() {
+	    long bound() {
+		return Iteration.sizeBound(source) == 0 ? 0
+			: Iteration.UNBOUNDED;
+	    }
+
+	    boolean exact() {
+		return Iteration.isSizeExact(source)
+			|| Iteration.sizeBound(source) == 0;
+	    }
+	};
+    }
+
+    /**
+     * @return the size of the source count times over, for <code>repeat</code>.
+     */
+    static Size times(final long count, final Iterable<?> source) {
+	return new Size() {
+	    long bound() {
+		return count <= 0 ? 0 : times(count, Iteration.sizeBound(source));
+	    }
+
+	    boolean exact() {
+		return count <= 0 || Iteration.isSizeExact(source);
+	    }
+	};
+    }
+
+    /**
+     * @return the number of windows of the given size every step elements of the
+     * source, counting a last partial one if partial is set.
+     */
+    static Size windows(final Iterable<?> source, final int size,
+	    final int step, final boolean partial) {
+	return new Size() {
+	    long bound() {
+		long n = Iteration.sizeBound(source);
+		if (n == Iteration.UNBOUNDED)
+		    return n;
+		if (partial)
+		    return n <= 0 ? 0 : (n - 1) / step + 1;
+		return n < size ? 0 : (n - size) / step + 1;
+	    }
+
+	    boolean exact() {
+		return Iteration.isSizeExact(source) || bound() == 0;
+	    }
+	};
+    }
+
+    static long plus(long a, long b) {
+	return a > Iteration.UNBOUNDED - b ? Iteration.UNBOUNDED : a + b;
+    }
+
+    static long times(long a, long b) {
+	return b != 0 && a > Iteration.UNBOUNDED / b ? Iteration.UNBOUNDED : a
+		* b;
+    }
+}
@@ -0,0 +1,266 @@
+package com.syntazo.coffeegrains;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.syntazo.coffeegrains.Iteration.BatchIterator;
+import com.syntazo.coffeegrains.Iteration.SizedIterable;
+
+/**
+ * The iterable behind <code>Iteration.sorted</code>. Each iterator reads the
+ * source into an array of at most limit elements and sorts it. A source that
+ * fits is returned straight from the array. Otherwise every full array is
+ * written out as a sorted run, a temporary file of serialized elements
+ * compressed at the fastest level, and the runs are merged back lazily by
+ * <code>Iteration.merge</code> together with the last array, so the heap never
+ * holds more than limit elements plus a buffer per run. When there are more
+ * than FAN_IN runs, groups of them are first merged into longer runs, so that
+ * no more than FAN_IN files are open at once. The sort is stable, and the run
+ * files are deleted as they are read, or when the iterator is closed.
+ *
+ * @see Iteration#sorted(Iterable, Comparator, int)
+ */
+class Sort implements SizedIterable<Object> {
+    /**
+     * The most runs merged at once.
+     */
+    final static int FAN_IN = 64;
+    final static int BUFFER = 1 << 16;
+
+    final Iterable<?> source;
+    final Comparator<Object> comparator;
+    final int limit;
+
+    Sort(Iterable<?> source, Comparator<Object> comparator, int limit) {
+	this.source = source;
+	this.comparator = comparator;
+	this.limit = Math.min(limit, Integer.MAX_VALUE - 8);
+    }
+
+    public Iterator<Object> iterator() {
+	return new BatchIterator<Object>() {
+	    final List<Run> runs = new ArrayList<Run>();
+	    Iterator<Object> sorted;
+
+	    public boolean hasNext() {
+		if (sorted == null)
+		    sorted = sort(runs);
+		return sorted.hasNext();
+	    }
+
+	    public Object next() {
+		if (hasNext() == false)
+		    throw new NoSuchElementException();
+		return sorted.next();
+	    }
+
+	    /**
+	     * Closes the runs being merged and deletes their files.
+	     */
+	    public void close() {
+		if (sorted != null)
+		    Iteration.close(sorted);
+		for (Run run : runs)
+		    run.delete();
+	    }
+
+	    public void remove() {
+	    }
+	};
+    }
+
+    /**
+     * Reads and sorts the whole source, adding the runs it spills to runs.
+     *
+     * @return an iterator over the sorted elements.
+     */
+    Iterator<Object> sort(List<Run> runs) {
+	Iterator<?> iterator = source != null ? source.iterator()
+		: Iteration.Null;
+	try {
+	    Object[] buffer = new Object[(int) Math.max(1, Math.min(limit,
+		    Math.min(Iteration.sizeBound(source), Columns.INITIAL)))];
+	    int n = 0;
+	    while (iterator.hasNext()) {
+		if (n == buffer.length) {
+		    if (n < limit)
+			buffer = Arrays.copyOf(buffer, (int) Math.min(limit,
+				2L * n));
+		    else {
+			Arrays.sort(buffer, 0, n, comparator);
+			runs.add(write(Arrays.asList(buffer).iterator()));
+			Arrays.fill(buffer, null);
+			n = 0;
+		    }
+		}
+		buffer[n++] = iterator.next();
+	    }
+	    Arrays.sort(buffer, 0, n, comparator);
+	    Iterable<Object> memory = Iteration.slice(
+		    new Iteration.ArrayIterable(buffer), 0, n);
+	    if (runs.isEmpty())
+		return memory.iterator();
+	    while (runs.size() > FAN_IN) {
+		List<Run> merged = new ArrayList<Run>();
+		for (int i = 0; i < runs.size(); i += FAN_IN) {
+		    List<Run> group = runs.subList(i,
+			    Math.min(i + FAN_IN, runs.size()));
+		    merged.add(group.size() == 1 ? group.get(0) : write(merge(
+			    group).iterator()));
+		}
+		runs.clear();
+		runs.addAll(merged);
+	    }
+	    Iterable<?>[] iterables = runs.toArray(new Iterable<?>[runs
+		    .size() + 1]);
+	    iterables[runs.size()] = memory;
+	    return Iteration.merge(comparator, iterables).iterator();
+	} catch (RuntimeException | Error e) {
+	    for (Run run : runs)
+		run.delete();
+	    throw e;
+	} finally {
+	    Iteration.close(iterator);
+	}
+    }
+
+    Iterable<Object> merge(List<Run> group) {
+	return Iteration.merge(comparator, group.toArray(new Iterable<?>[group
+		.size()]));
+    }
+
+    /**
+     * Writes the elements of the iterator to a new run file.
+     */
+    static Run write(Iterator<?> iterator) {
+	Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	Path file = null;
+	try {
+	    file = Files.createTempFile("coffeegrains", ".sort");
+	    long count = 0;
+	    try (ObjectOutputStream out = new ObjectOutputStream(
+		    new BufferedOutputStream(new DeflaterOutputStream(
+			    Files.newOutputStream(file), deflater, BUFFER), BUFFER))) {
+		while (iterator.hasNext()) {
+		    out.writeObject(iterator.next());
+		    if (++count % Cache.RESET == 0)
+			out.reset();
+		}
+	    }
+	    return new Run(file, count);
+	} catch (IOException e) {
+	    delete(file);
+	    throw new UncheckedIOException(e);
+	} catch (RuntimeException | Error e) {
+	    delete(file);
+	    throw e;
+	} finally {
+	    deflater.end();
+	    Iteration.close(iterator);
+	}
+    }
+
+    static void delete(Path file) {
+	try {
+	    if (file != null)
+		Files.deleteIfExists(file);
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+
+    /**
+     * A sorted run on disk, read once: the file is deleted when its iterator is
+     * exhausted or closed.
+     */
+    static class Run implements Iterable<Object> {
+	final Path file;
+	final long count;
+
+	Run(Path file, long count) {
+	    this.file = file;
+	    this.count = count;
+	}
+
+	public Iterator<Object> iterator() {
+	    return new BatchIterator<Object>() {
+		ObjectInputStream in;
+		long read = 0;
+
+		public boolean hasNext() {
+		    if (read < count)
+			return true;
+		    close();
+		    return false;
+		}
+
+		public Object next() {
+		    if (hasNext() == false)
+			throw new NoSuchElementException();
+		    try {
+			if (in == null)
+			    in = new ObjectInputStream(new BufferedInputStream(
+				    new InflaterInputStream(
+					    Files.newInputStream(file)), BUFFER));
+			read++;
+			return in.readObject();
+		    } catch (IOException e) {
+			close();
+			throw new UncheckedIOException(e);
+		    } catch (ClassNotFoundException e) {
+			close();
+			throw new IllegalStateException(e);
+		    }
+		}
+
+		public void close() {
+		    read = count;
+		    try {
+			if (in != null)
+			    in.close();
+			in = null;
+		    } catch (IOException e) {
+			throw new UncheckedIOException(e);
+		    } finally {
+			delete();
+		    }
+		}
+
+		public void remove() {
+		}
+	    };
+	}
+
+	void delete() {
+	    Sort.delete(file);
+	}
+    }
+
+    public long sizeBound() {
+	return Iteration.sizeBound(source);
+    }
+
+    public boolean isSizeExact() {
+	return Iteration.isSizeExact(source);
+    }
+
+    @Override
+    public String toString() {
+	return Iteration.preview(this);
+    }
+}
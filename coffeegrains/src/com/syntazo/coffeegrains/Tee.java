@@ -0,0 +1,174 @@
+package com.syntazo.coffeegrains;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.syntazo.coffeegrains.Iteration.BatchIterator;
+
+/**
+ * The state shared by the readers of <code>Iteration.tee</code>: one iterator over
+ * the source and a ring buffer of the elements read from it that some reader has
+ * not reached yet. Element number i of the source sits at
+ * <code>ring[i & (ring.length - 1)]</code>, and the slots behind the slowest reader
+ * are cleared as it moves on.
+ *
+ * This one is for readers on a single thread, and grows the ring when the
+ * fastest reader gets a full ring ahead of the slowest. A closed reader is
+ * detached: the others no longer keep elements for it, and the source is
+ * closed with the last of them.
+ *
+ * @see Iteration#tee(Iterable, int)
+ */
+class Tee {
+    /**
+     * The position of a closed reader.
+     */
+    final static long CLOSED = Long.MAX_VALUE;
+
+    final Iterator<?> source;
+    final long[] positions;
+    final boolean[] taken;
+    Object[] ring;
+    long produced = 0;
+    long slowest = 0;
+
+    Tee(Iterator<?> source, int readers, int capacity) {
+	this.source = source;
+	this.positions = new long[readers];
+	this.taken = new boolean[readers];
+	this.ring = new Object[Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1)];
+    }
+
+    /**
+     * @return the iterator of the given reader, over the whole source. Each
+     * reader has a single iterator.
+     */
+    Iterator<Object> reader(final int reader) {
+	if (taken[reader])
+	    throw new IllegalStateException("tee: branch " + reader
+		    + " is already iterated");
+	taken[reader] = true;
+	return new BatchIterator<Object>() {
+	    public boolean hasNext() {
+		return Tee.this.hasNext(reader);
+	    }
+
+	    public Object next() {
+		return Tee.this.next(reader);
+	    }
+
+	    public void close() {
+		Tee.this.close(reader);
+	    }
+
+	    public void remove() {
+	    }
+	};
+    }
+
+    boolean hasNext(int reader) {
+	long position = positions[reader];
+	return position != CLOSED && (position < produced || source.hasNext());
+    }
+
+    Object next(int reader) {
+	long position = positions[reader];
+	if (position == CLOSED)
+	    throw new NoSuchElementException();
+	if (position == produced) {
+	    if (source.hasNext() == false)
+		throw new NoSuchElementException();
+	    if (produced - slowest == ring.length)
+		grow();
+	    ring[(int) (produced & (ring.length - 1))] = source.next();
+	    produced++;
+	}
+	Object obj = ring[(int) (position & (ring.length - 1))];
+	positions[reader] = position + 1;
+	if (position == slowest)
+	    release();
+	return obj;
+    }
+
+    /**
+     * Detaches the reader, and closes the source once every reader is closed.
+     */
+    void close(int reader) {
+	if (positions[reader] == CLOSED)
+	    return;
+	positions[reader] = CLOSED;
+	release();
+	for (long position : positions)
+	    if (position != CLOSED)
+		return;
+	Iteration.close(source);
+    }
+
+    /**
+     * Moves slowest up to the slowest open reader, clearing the slots no reader
+     * needs.
+     */
+    void release() {
+	long min = produced;
+	for (long position : positions)
+	    min = Math.min(min, position);
+	while (slowest < min)
+	    ring[(int) (slowest++ & (ring.length - 1))] = null;
+    }
+
+    void grow() {
+	Object[] grown = new Object[ring.length * 2];
+	for (long i = slowest; i < produced; i++)
+	    grown[(int) (i & (grown.length - 1))] = ring[(int) (i & (ring.length - 1))];
+	ring = grown;
+    }
+
+    /**
+     * The thread safe <code>Tee</code>: the readers may run on different threads, and
+     * one that gets capacity elements ahead of the slowest waits for it instead
+     * of growing the ring, or until the slowest is closed.
+     *
+     * @see Iteration#tee(Iterable, int, int)
+     */
+    static class Shared extends Tee {
+	final int capacity;
+
+	Shared(Iterator<?> source, int readers, int capacity) {
+	    super(source, readers, capacity);
+	    this.capacity = capacity;
+	}
+
+	@Override
+	synchronized Iterator<Object> reader(int reader) {
+	    return super.reader(reader);
+	}
+
+	@Override
+	synchronized boolean hasNext(int reader) {
+	    return super.hasNext(reader);
+	}
+
+	@Override
+	synchronized Object next(int reader) {
+	    try {
+		while (positions[reader] == produced
+			&& produced - slowest >= capacity)
+		    wait();
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		throw new IllegalStateException("interrupted waiting on tee", e);
+	    }
+	    long before = slowest;
+	    Object obj = super.next(reader);
+	    if (slowest != before)
+		notifyAll();
+	    return obj;
+	}
+
+	@Override
+	synchronized void close(int reader) {
+	    super.close(reader);
+	    notifyAll();
+	}
+    }
+}
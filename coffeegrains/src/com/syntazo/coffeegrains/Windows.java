@@ -0,0 +1,599 @@
+package com.syntazo.coffeegrains;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+import com.syntazo.coffeegrains.Iteration.BatchIterator;
+import com.syntazo.coffeegrains.Iteration.DoubleIterable;
+import com.syntazo.coffeegrains.Iteration.IndexedIterable;
+import com.syntazo.coffeegrains.Iteration.IntBatchIterator;
+import com.syntazo.coffeegrains.Iteration.IntIterable;
+import com.syntazo.coffeegrains.Iteration.IteratorMaker;
+import com.syntazo.coffeegrains.Iteration.LongIterable;
+import com.syntazo.coffeegrains.Iteration.Tuple;
+
+/**
+ * The sliding windows and chunks of <code>Iteration.windowed</code> and
+ * <code>Iteration.chunked</code>. An iterator reads its source once, into a
+ * ring buffer of size + min(step, size) slots: the window handed out last
+ * takes size of them and the elements of the next window are read into the
+ * others, so a window keeps its values until <code>next()</code> moves on, and
+ * each element is read once however much the windows overlap.
+ *
+ * A window is handed out as a <code>Tuple</code> of its own, or with reuse as
+ * one read only view per iterator, which <code>next()</code> moves along the
+ * ring and so allocates nothing per step. The int, long and double windows
+ * read a primitive source without boxing and are primitive iterables again,
+ * ready for <code>sum</code>, <code>min</code> or <code>max</code>.
+ * <pre>
+ * -----------------------------------------------------
+ * for (Object window : windowed(prices, 20, 1, true))
+ *     averages.add(sum((DoubleWindow) window) / 20);
+ * -----------------------------------------------------
+ * </pre>
+ *
+ * @see Iteration#windowed(Iterable, int, int, boolean)
+ * @see Iteration#chunked(Iterable, int, boolean)
+ */
+public class Windows {
+    /**
+     * A read only view of a window of objects.
+     */
+    public static class Window implements IndexedIterable<Object> {
+	final Object[] ring;
+	int head;
+	int size;
+
+	Window(Object[] ring, int head, int size) {
+	    this.ring = ring;
+	    this.head = head;
+	    this.size = size;
+	}
+
+	public int size() {
+	    return size;
+	}
+
+	public Object get(int index) {
+	    return ring[slot(ring.length, head, size, index)];
+	}
+
+	public Object[] toArray() {
+	    Object[] array = new Object[size];
+	    unwind(ring, ring.length, head, size, array);
+	    return array;
+	}
+
+	public Iterator<Object> iterator() {
+	    return new BatchIterator<Object>() {
+		int index = 0;
+
+		public boolean hasNext() {
+		    return index < size;
+		}
+
+		public Object next() {
+		    if (index >= size)
+			throw new NoSuchElementException();
+		    return get(index++);
+		}
+
+		public void remove() {
+		}
+	    };
+	}
+
+	@Override
+	public String toString() {
+	    return Iteration.preview(this);
+	}
+    }
+
+    /**
+     * A read only view of a window of ints, read by <code>nextInt()</code> or
+     * <code>getInt</code> without boxing.
+     */
+    public static class IntWindow implements IntIterable,
+	    IndexedIterable<Integer> {
+	final int[] ring;
+	int head;
+	int size;
+
+	IntWindow(int[] ring, int head, int size) {
+	    this.ring = ring;
+	    this.head = head;
+	    this.size = size;
+	}
+
+	public int size() {
+	    return size;
+	}
+
+	public Integer get(int index) {
+	    return getInt(index);
+	}
+
+	public int getInt(int index) {
+	    return ring[slot(ring.length, head, size, index)];
+	}
+
+	public int[] toArray() {
+	    int[] array = new int[size];
+	    unwind(ring, ring.length, head, size, array);
+	    return array;
+	}
+
+	public PrimitiveIterator.OfInt iterator() {
+	    return new IntBatchIterator() {
+		int index = 0;
+
+		public boolean hasNext() {
+		    return index < size;
+		}
+
+		public int nextInt() {
+		    if (index >= size)
+			throw new NoSuchElementException();
+		    return getInt(index++);
+		}
+
+		public int nextBatch(int[] buffer, int max) {
+		    int n = Math.max(Math.min(max, size - index), 0);
+		    int from = head + index;
+		    unwind(ring, ring.length, from < ring.length ? from : from
+			    - ring.length, n, buffer);
+		    index += n;
+		    return n;
+		}
+
+		public void remove() {
+		}
+	    };
+	}
+
+	public Spliterator.OfInt spliterator() {
+	    return Spliterators.spliterator(iterator(), size,
+		    Spliterator.ORDERED);
+	}
+
+	@Override
+	public String toString() {
+	    return Iteration.preview(this);
+	}
+    }
+
+    /**
+     * A read only view of a window of longs, read by <code>nextLong()</code> or
+     * <code>getLong</code> without boxing.
+     */
+    public static class LongWindow implements LongIterable,
+	    IndexedIterable<Long> {
+	final long[] ring;
+	int head;
+	int size;
+
+	LongWindow(long[] ring, int head, int size) {
+	    this.ring = ring;
+	    this.head = head;
+	    this.size = size;
+	}
+
+	public int size() {
+	    return size;
+	}
+
+	public Long get(int index) {
+	    return getLong(index);
+	}
+
+	public long getLong(int index) {
+	    return ring[slot(ring.length, head, size, index)];
+	}
+
+	public long[] toArray() {
+	    long[] array = new long[size];
+	    unwind(ring, ring.length, head, size, array);
+	    return array;
+	}
+
+	public PrimitiveIterator.OfLong iterator() {
+	    return new PrimitiveIterator.OfLong() {
+		int index = 0;
+
+		public boolean hasNext() {
+		    return index < size;
+		}
+
+		public long nextLong() {
+		    if (index >= size)
+			throw new NoSuchElementException();
+		    return getLong(index++);
+		}
+
+		public void remove() {
+		}
+	    };
+	}
+
+	public Spliterator.OfLong spliterator() {
+	    return Spliterators.spliterator(iterator(), size,
+		    Spliterator.ORDERED);
+	}
+
+	@Override
+	public String toString() {
+	    return Iteration.preview(this);
+	}
+    }
+
+    /**
+     * A read only view of a window of doubles, read by <code>nextDouble()</code>
+     * or <code>getDouble</code> without boxing.
+     */
+    public static class DoubleWindow implements DoubleIterable,
+	    IndexedIterable<Double> {
+	final double[] ring;
+	int head;
+	int size;
+
+	DoubleWindow(double[] ring, int head, int size) {
+	    this.ring = ring;
+	    this.head = head;
+	    this.size = size;
+	}
+
+	public int size() {
+	    return size;
+	}
+
+	public Double get(int index) {
+	    return getDouble(index);
+	}
+
+	public double getDouble(int index) {
+	    return ring[slot(ring.length, head, size, index)];
+	}
+
+	public double[] toArray() {
+	    double[] array = new double[size];
+	    unwind(ring, ring.length, head, size, array);
+	    return array;
+	}
+
+	public PrimitiveIterator.OfDouble iterator() {
+	    return new PrimitiveIterator.OfDouble() {
+		int index = 0;
+
+		public boolean hasNext() {
+		    return index < size;
+		}
+
+		public double nextDouble() {
+		    if (index >= size)
+			throw new NoSuchElementException();
+		    return getDouble(index++);
+		}
+
+		public void remove() {
+		}
+	    };
+	}
+
+	public Spliterator.OfDouble spliterator() {
+	    return Spliterators.spliterator(iterator(), size,
+		    Spliterator.ORDERED);
+	}
+
+	@Override
+	public String toString() {
+	    return Iteration.preview(this);
+	}
+    }
+
+    /**
+     * @return the ring slot of the element at index of a window starting at head.
+     */
+    static int slot(int capacity, int head, int size, int index) {
+	if (index < 0 || index >= size)
+	    throw new IndexOutOfBoundsException("index " + index + " of " + size);
+	int slot = head + index;
+	return slot < capacity ? slot : slot - capacity;
+    }
+
+    /**
+     * Copies length elements of a ring array, from the slot head on, into the
+     * start of a flat array of the same type, in at most two runs.
+     */
+    static void unwind(Object ring, int capacity, int head, int length,
+	    Object into) {
+	int first = Math.min(length, capacity - head);
+	System.arraycopy(ring, head, into, 0, first);
+	System.arraycopy(ring, 0, into, first, length - first);
+    }
+
+    /**
+     * The iterator of the windows over one source. It keeps the head slot and
+     * length of the window handed out last and reads the next one ahead into
+     * the free slots, leaving the reading and handing out to the typed rings.
+     */
+    static abstract class Ring implements BatchIterator<Object> {
+	final Iterator<?> source;
+	final int size;
+	final int step;
+	final int advance;
+	final int capacity;
+	final boolean partial;
+	final boolean reuse;
+	int head = 0;
+	int length = -1;
+	int pending = -1;
+
+	Ring(Iterator<?> source, int size, int step, boolean partial,
+		boolean reuse) {
+	    this.source = source;
+	    this.size = size;
+	    this.step = step;
+	    this.advance = Math.min(step, size);
+	    this.capacity = size + advance;
+	    this.partial = partial;
+	    this.reuse = reuse;
+	}
+
+	/**
+	 * Reads the next element of the source into the given slot.
+	 *
+	 * @return false if the source is exhausted.
+	 */
+	abstract boolean read(int slot);
+
+	/**
+	 * Reads past the next element of the source, unboxed for a primitive one.
+	 *
+	 * @return false if the source is exhausted.
+	 */
+	abstract boolean skip();
+
+	/**
+	 * @return the window of length elements from the slot head on, the view
+	 * moved there or a copy.
+	 */
+	abstract Object window(int head, int length);
+
+	public boolean hasNext() {
+	    if (pending < 0)
+		pending = fill();
+	    return pending > 0;
+	}
+
+	/**
+	 * Reads the next window into the slots after the current one.
+	 *
+	 * @return its length, 0 if there is none.
+	 */
+	int fill() {
+	    int n = 0;
+	    if (length < 0) {
+		while (n < size && read(n))
+		    n++;
+		return n == size || partial && n > 0 ? n : 0;
+	    }
+	    if (length < size)
+		return 0;
+	    for (int i = step - size; i > 0; i--)
+		if (skip() == false)
+		    return 0;
+	    int from = head + size;
+	    while (n < advance && read(from + n < capacity ? from + n : from + n
+		    - capacity))
+		n++;
+	    return n == advance || partial && n > 0 ? size - advance + n : 0;
+	}
+
+	public Object next() {
+	    if (hasNext() == false)
+		throw new NoSuchElementException();
+	    if (length >= 0)
+		head = head + advance < capacity ? head + advance : head + advance
+			- capacity;
+	    length = pending;
+	    pending = -1;
+	    return window(head, length);
+	}
+
+	public void close() {
+	    Iteration.close(source);
+	}
+
+	public void remove() {
+	}
+    }
+
+    static class ObjectRing extends Ring {
+	final Object[] ring;
+	final Window view;
+
+	ObjectRing(Iterator<?> source, int size, int step, boolean partial,
+		boolean reuse) {
+	    super(source, size, step, partial, reuse);
+	    this.ring = new Object[capacity];
+	    this.view = new Window(ring, 0, 0);
+	}
+
+	boolean read(int slot) {
+	    if (source.hasNext() == false)
+		return false;
+	    ring[slot] = source.next();
+	    return true;
+	}
+
+	boolean skip() {
+	    if (source.hasNext() == false)
+		return false;
+	    source.next();
+	    return true;
+	}
+
+	Object window(int head, int length) {
+	    if (reuse) {
+		view.head = head;
+		view.size = length;
+		return view;
+	    }
+	    Object[] values = new Object[length];
+	    unwind(ring, capacity, head, length, values);
+	    return new Tuple(values);
+	}
+    }
+
+    static class IntRing extends Ring {
+	final PrimitiveIterator.OfInt ints;
+	final int[] ring;
+	final IntWindow view;
+
+	IntRing(PrimitiveIterator.OfInt source, int size, int step,
+		boolean partial, boolean reuse) {
+	    super(source, size, step, partial, reuse);
+	    this.ints = source;
+	    this.ring = new int[capacity];
+	    this.view = new IntWindow(ring, 0, 0);
+	}
+
+	boolean read(int slot) {
+	    if (ints.hasNext() == false)
+		return false;
+	    ring[slot] = ints.nextInt();
+	    return true;
+	}
+
+	boolean skip() {
+	    if (ints.hasNext() == false)
+		return false;
+	    ints.nextInt();
+	    return true;
+	}
+
+	Object window(int head, int length) {
+	    if (reuse) {
+		view.head = head;
+		view.size = length;
+		return view;
+	    }
+	    int[] values = new int[length];
+	    unwind(ring, capacity, head, length, values);
+	    return new IntWindow(values, 0, length);
+	}
+    }
+
+    static class LongRing extends Ring {
+	final PrimitiveIterator.OfLong longs;
+	final long[] ring;
+	final LongWindow view;
+
+	LongRing(PrimitiveIterator.OfLong source, int size, int step,
+		boolean partial, boolean reuse) {
+	    super(source, size, step, partial, reuse);
+	    this.longs = source;
+	    this.ring = new long[capacity];
+	    this.view = new LongWindow(ring, 0, 0);
+	}
+
+	boolean read(int slot) {
+	    if (longs.hasNext() == false)
+		return false;
+	    ring[slot] = longs.nextLong();
+	    return true;
+	}
+
+	boolean skip() {
+	    if (longs.hasNext() == false)
+		return false;
+	    longs.nextLong();
+	    return true;
+	}
+
+	Object window(int head, int length) {
+	    if (reuse) {
+		view.head = head;
+		view.size = length;
+		return view;
+	    }
+	    long[] values = new long[length];
+	    unwind(ring, capacity, head, length, values);
+	    return new LongWindow(values, 0, length);
+	}
+    }
+
+    static class DoubleRing extends Ring {
+	final PrimitiveIterator.OfDouble doubles;
+	final double[] ring;
+	final DoubleWindow view;
+
+	DoubleRing(PrimitiveIterator.OfDouble source, int size, int step,
+		boolean partial, boolean reuse) {
+	    super(source, size, step, partial, reuse);
+	    this.doubles = source;
+	    this.ring = new double[capacity];
+	    this.view = new DoubleWindow(ring, 0, 0);
+	}
+
+	boolean read(int slot) {
+	    if (doubles.hasNext() == false)
+		return false;
+	    ring[slot] = doubles.nextDouble();
+	    return true;
+	}
+
+	boolean skip() {
+	    if (doubles.hasNext() == false)
+		return false;
+	    doubles.nextDouble();
+	    return true;
+	}
+
+	Object window(int head, int length) {
+	    if (reuse) {
+		view.head = head;
+		view.size = length;
+		return view;
+	    }
+	    double[] values = new double[length];
+	    unwind(ring, capacity, head, length, values);
+	    return new DoubleWindow(values, 0, length);
+	}
+    }
+
+    /**
+     * @return the windows of the given size every step elements of the source,
+     * and with partial, the last one even if the source ends before it is full.
+     * Windows that overlap cannot be partial, as the last ones would all be. With
+     * unboxed, an int, long or double source has primitive windows.
+     */
+    static Iterable<Object> windows(final Iterable<?> source, final int size,
+	    final int step, final boolean partial, final boolean reuse,
+	    final boolean unboxed) {
+	if (size < 1 || step < 1)
+	    throw new IllegalArgumentException("windows of " + size + " every "
+		    + step);
+	if (partial && step < size)
+	    throw new IllegalArgumentException("partial windows of " + size
+		    + " every " + step);
+	return Iteration.buildObjectIterable(new IteratorMaker<Object>() {
+	    public Iterator<Object> iterator() {
+		if (unboxed && source instanceof IntIterable)
+		    return new IntRing(((IntIterable) source).iterator(), size,
+			    step, partial, reuse);
+		if (unboxed && source instanceof LongIterable)
+		    return new LongRing(((LongIterable) source).iterator(), size,
+			    step, partial, reuse);
+		if (unboxed && source instanceof DoubleIterable)
+		    return new DoubleRing(((DoubleIterable) source).iterator(),
+			    size, step, partial, reuse);
+		return new ObjectRing(source != null ? source.iterator()
+			: Iteration.Null, size, step, partial, reuse);
+	    }
+	}, Size.windows(source, size, step, partial));
+    }
+}